@@ -68,6 +68,21 @@ public class Book {
         this.stock = stock;
     }
 
+    // Detached copy, used by the in-memory catalog
+    public Book(Book other) {
+        this.bookId = other.bookId;
+        this.title = other.title;
+        this.price = other.price;
+        this.bookDescription = other.bookDescription;
+        this.bookStatus = other.bookStatus;
+        this.cover = other.cover;
+        this.genre = other.genre;
+        this.author = other.author;
+        this.stock = other.stock;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     public Integer getBookId() {
         return bookId;
     }
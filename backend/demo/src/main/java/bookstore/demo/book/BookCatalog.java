@@ -0,0 +1,352 @@
+package bookstore.demo.book;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Read-through, versioned in-memory copy of the Book table.
+// Readers get an immutable snapshot without touching the database; writers go through
+// BookService, whose change events are applied here after commit (copy-on-write).
+@Component
+public class BookCatalog {
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate freshReads;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot;
+
+    public BookCatalog(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+
+        // Rows changed in SQL are re-read in a separate persistence context, not the (stale) one of the writer
+        this.freshReads = new TransactionTemplate(transactionManager);
+        this.freshReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.freshReads.setReadOnly(true);
+    }
+
+    // Get the current snapshot, loading it from the database on first use
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hits.incrementAndGet();
+            return current;
+        }
+
+        misses.incrementAndGet();
+        return load();
+    }
+
+    // Rebuild the snapshot from the database
+    public synchronized Snapshot reload() {
+        Snapshot previous = snapshot;
+        long version = previous == null ? 1 : previous.version() + 1;
+
+        List<Book> books = bookRepository.findAll().stream()
+                .map(Book::new)
+                .toList();
+
+        Snapshot loaded = Snapshot.of(version, books);
+        snapshot = loaded;
+        refreshes.incrementAndGet();
+
+        if (previous == null) {
+            listeners.forEach(listener -> listener.onReload(loaded));
+        } else {
+            // Only push rows that actually changed since the last snapshot
+            for (Book book : loaded.books()) {
+                Book old = previous.byId().get(book.getBookId());
+                if (old == null || !sameState(old, book)) {
+                    notifyChange(old, book);
+                }
+            }
+            for (Book old : previous.books()) {
+                if (!loaded.byId().containsKey(old.getBookId())) {
+                    notifyChange(old, null);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // Register a derived structure that follows catalog changes
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        Snapshot current = snapshot;
+        if (current != null) {
+            listener.onReload(current);
+        }
+    }
+
+    // Rebuild one listener from the current snapshot (under the catalog lock, so no change is applied twice)
+    public synchronized void replay(Listener listener) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            listener.onReload(current);
+        }
+    }
+
+    // Periodically reconcile with the database to pick up changes made outside BookService (triggers, manual SQL)
+    @Scheduled(fixedDelayString = "${bookstore.catalog.refresh-interval-ms:300000}",
+            initialDelayString = "${bookstore.catalog.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        if (snapshot != null) {
+            reload();
+        }
+    }
+
+    // Apply committed book changes to the snapshot. Only the changed books' slots and buckets are copied
+    // (see Snapshot.apply), so a stock movement does not re-sort or regroup the whole catalog.
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChange(BookChangeEvent event) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Nothing cached yet, the first read will load fresh data
+            return;
+        }
+
+        // State of each id as of the changes seen so far in this event, so repeated ids chain correctly
+        Map<Integer, Book> latest = new HashMap<>();
+        Function<Integer, Book> previousOf = id -> latest.containsKey(id) ? latest.get(id) : current.byId().get(id);
+
+        List<Change> changes = new ArrayList<>();
+        for (Integer deletedId : event.deletedIds()) {
+            Book old = previousOf.apply(deletedId);
+            if (old != null) {
+                changes.add(new Change(old, null));
+                latest.put(deletedId, null);
+            }
+        }
+        List<Book> saved = new ArrayList<>();
+        event.saved().forEach(book -> saved.add(new Book(book)));
+        if (!event.changedIds().isEmpty()) {
+            saved.addAll(freshReads.execute(status -> bookRepository.findAllById(event.changedIds()).stream()
+                    .map(Book::new)
+                    .toList()));
+        }
+        for (Book copy : saved) {
+            changes.add(new Change(previousOf.apply(copy.getBookId()), copy));
+            latest.put(copy.getBookId(), copy);
+        }
+
+        snapshot = current.apply(current.version() + 1, changes);
+        updates.incrementAndGet();
+
+        changes.forEach(change -> notifyChange(change.previous(), change.current()));
+    }
+
+    // Hit/miss/refresh counters for monitoring
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("version", current != null ? current.version() : 0);
+        stats.put("size", current != null ? current.books().size() : 0);
+        stats.put("builtAt", current != null ? current.builtAt() : null);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("updates", updates.get());
+        return stats;
+    }
+
+    private synchronized Snapshot load() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    private void notifyChange(Book previous, Book current) {
+        listeners.forEach(listener -> listener.onChange(previous, current));
+    }
+
+    private static boolean sameState(Book a, Book b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && (a.getPrice() == null ? b.getPrice() == null
+                        : b.getPrice() != null && a.getPrice().compareTo(b.getPrice()) == 0)
+                && Objects.equals(a.getBookDescription(), b.getBookDescription())
+                && a.getBookStatus() == b.getBookStatus()
+                && Objects.equals(a.getCover(), b.getCover())
+                && Objects.equals(a.getGenre(), b.getGenre())
+                && Objects.equals(a.getAuthor(), b.getAuthor())
+                && Objects.equals(a.getStock(), b.getStock())
+                && Objects.equals(a.getUpdatedAt(), b.getUpdatedAt());
+    }
+
+    // One book's transition; previous is null for inserts, current is null for deletes
+    record Change(Book previous, Book current) {
+    }
+
+    // Derived in-memory structures (search index, facets, ...) that follow the catalog.
+    // Callbacks run while the catalog lock is held, so implementations only see ordered, serialized updates.
+    public interface Listener {
+
+        // Full (re)build from a freshly loaded snapshot
+        void onReload(Snapshot snapshot);
+
+        // A single book changed; previous is null for inserts, current is null for deletes
+        void onChange(Book previous, Book current);
+    }
+
+    // Immutable view of the catalog, indexed by id, status and genre
+    public record Snapshot(
+            long version,
+            LocalDateTime builtAt,
+            List<Book> books,
+            Map<Integer, Book> byId,
+            Map<Book.BookStatus, List<Book>> byStatus,
+            Map<String, List<Book>> byGenre,
+            List<String> genres) {
+
+        // Above this many changes one full build is cheaper than an array copy per change
+        private static final int INCREMENTAL_LIMIT = 32;
+
+        static Snapshot of(long version, Collection<Book> source) {
+            SortedBookList books = SortedBookList.of(source);
+
+            Map<Book.BookStatus, List<Book>> byStatus = new EnumMap<>(Book.BookStatus.class);
+            Map<String, List<Book>> byGenre = new HashMap<>();
+            for (Book book : books) {
+                byStatus.computeIfAbsent(book.getBookStatus(), status -> new ArrayList<>()).add(book);
+                if (book.getGenre() != null) {
+                    byGenre.computeIfAbsent(genreKey(book.getGenre()), key -> new ArrayList<>()).add(book);
+                }
+            }
+
+            Map<Book.BookStatus, List<Book>> statusView = new EnumMap<>(Book.BookStatus.class);
+            byStatus.forEach((status, list) -> statusView.put(status, SortedBookList.of(list)));
+
+            Map<String, List<Book>> genreView = new HashMap<>();
+            byGenre.forEach((genre, list) -> genreView.put(genre, SortedBookList.of(list)));
+
+            return new Snapshot(
+                    version,
+                    LocalDateTime.now(),
+                    books,
+                    books.asMap(),
+                    Collections.unmodifiableMap(statusView),
+                    Collections.unmodifiableMap(genreView),
+                    genreNames(genreView));
+        }
+
+        // Copy-on-write successor: the id-sorted array gets one copy per change, and only the status and
+        // genre buckets the changed books leave or enter are copied; the genre list is redone only when
+        // a genre bucket changed. Large batches fall back to a full build.
+        Snapshot apply(long newVersion, List<Change> changes) {
+            if (changes.size() > INCREMENTAL_LIMIT) {
+                Map<Integer, Book> merged = new HashMap<>(byId);
+                for (Change change : changes) {
+                    if (change.previous() != null) {
+                        merged.remove(change.previous().getBookId());
+                    }
+                    if (change.current() != null) {
+                        merged.put(change.current().getBookId(), change.current());
+                    }
+                }
+                return of(newVersion, merged.values());
+            }
+
+            SortedBookList all = SortedBookList.from(books);
+            Map<Book.BookStatus, List<Book>> statusView = new EnumMap<>(Book.BookStatus.class);
+            statusView.putAll(byStatus);
+            Map<String, List<Book>> genreView = new HashMap<>(byGenre);
+            boolean genresChanged = false;
+
+            for (Change change : changes) {
+                Book previous = change.previous();
+                Book current = change.current();
+                if (previous != null) {
+                    all = all.without(previous.getBookId());
+                    remove(statusView, previous.getBookStatus(), previous.getBookId());
+                    if (previous.getGenre() != null) {
+                        remove(genreView, genreKey(previous.getGenre()), previous.getBookId());
+                        genresChanged = true;
+                    }
+                }
+                if (current != null) {
+                    all = all.with(current);
+                    add(statusView, current.getBookStatus(), current);
+                    if (current.getGenre() != null) {
+                        add(genreView, genreKey(current.getGenre()), current);
+                        genresChanged = true;
+                    }
+                }
+            }
+
+            return new Snapshot(
+                    newVersion,
+                    LocalDateTime.now(),
+                    all,
+                    all.asMap(),
+                    Collections.unmodifiableMap(statusView),
+                    Collections.unmodifiableMap(genreView),
+                    genresChanged ? genreNames(genreView) : genres);
+        }
+
+        private static <K> void remove(Map<K, List<Book>> buckets, K key, Integer bookId) {
+            List<Book> bucket = buckets.get(key);
+            if (bucket == null) {
+                return;
+            }
+            SortedBookList remaining = SortedBookList.from(bucket).without(bookId);
+            if (remaining.isEmpty()) {
+                buckets.remove(key);
+            } else {
+                buckets.put(key, remaining);
+            }
+        }
+
+        private static <K> void add(Map<K, List<Book>> buckets, K key, Book book) {
+            List<Book> bucket = buckets.get(key);
+            buckets.put(key, (bucket == null ? SortedBookList.EMPTY : SortedBookList.from(bucket)).with(book));
+        }
+
+        // Same ordering and case folding as SELECT DISTINCT Genre ... ORDER BY Genre; each genre is spelled
+        // as on its lowest-id book
+        private static List<String> genreNames(Map<String, List<Book>> byGenre) {
+            Map<String, String> genres = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            byGenre.values().forEach(bucket -> genres.putIfAbsent(bucket.get(0).getGenre(), bucket.get(0).getGenre()));
+            return List.copyOf(genres.values());
+        }
+
+        public Optional<Book> findById(Integer id) {
+            return Optional.ofNullable(byId.get(id));
+        }
+
+        public List<Book> findByStatus(Book.BookStatus status) {
+            return byStatus.getOrDefault(status, List.of());
+        }
+
+        public List<Book> findByGenre(String genre) {
+            return genre == null ? List.of() : byGenre.getOrDefault(genreKey(genre), List.of());
+        }
+
+        private static String genreKey(String genre) {
+            return genre.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package bookstore.demo.book;
+
+import java.util.Collection;
+import java.util.List;
+
+// Published by BookService whenever Book rows change, consumed after commit by the in-memory catalog.
+// changedIds covers rows updated in SQL (atomic stock updates) that the catalog re-reads once committed.
+public record BookChangeEvent(Collection<Book> saved, Collection<Integer> deletedIds, Collection<Integer> changedIds) {
+
+    public static BookChangeEvent saved(Book book) {
+        return new BookChangeEvent(List.of(book), List.of(), List.of());
+    }
+
+    public static BookChangeEvent deleted(Integer bookId) {
+        return new BookChangeEvent(List.of(), List.of(bookId), List.of());
+    }
+
+    public static BookChangeEvent changed(Collection<Integer> bookIds) {
+        return new BookChangeEvent(List.of(), List.of(), List.copyOf(bookIds));
+    }
+}
@@ -1,10 +1,19 @@
 package bookstore.demo.book;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,6 +26,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/books")
@@ -24,23 +35,105 @@ import org.springframework.web.bind.annotation.RestController;
 public class BookController {
 
     private final BookService bookService;
+    private final BookExportService bookExportService;
+    private final BookImportService bookImportService;
+    private final BookStockService bookStockService;
+    private final BookDocumentCache bookDocumentCache;
+    private final BookCoverService bookCoverService;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookExportService bookExportService,
+            BookImportService bookImportService, BookStockService bookStockService,
+            BookDocumentCache bookDocumentCache, BookCoverService bookCoverService) {
         this.bookService = bookService;
+        this.bookExportService = bookExportService;
+        this.bookImportService = bookImportService;
+        this.bookStockService = bookStockService;
+        this.bookDocumentCache = bookDocumentCache;
+        this.bookCoverService = bookCoverService;
     }
 
     // Get all books
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
-        return ResponseEntity.ok(bookService.getAllBooks());
+    public ResponseEntity<List<?>> getAllBooks(@RequestParam(defaultValue = "full") String view) {
+        return ResponseEntity.ok(render(bookService.getAllBooks(), view));
+    }
+
+    // Stream the full catalog (format=ndjson, one book per line, or format=json, a chunked array)
+    @GetMapping("/export")
+    public ResponseEntity<?> exportBooks(@RequestParam(defaultValue = "ndjson") String format) {
+        BookExportService.Format exportFormat;
+        try {
+            exportFormat = BookExportService.parseFormat(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> bookExportService.exportBooks(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == BookExportService.Format.json
+                        ? MediaType.APPLICATION_JSON
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"books." + exportFormat.name() + "\"")
+                .body(body);
     }
 
     // Get book by ID
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getBookById(@PathVariable Integer id) {
-        return bookService.getBookById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getBookById(@PathVariable Integer id, WebRequest request,
+            HttpServletResponse servletResponse) {
+        Optional<Book> book = bookService.getBookById(id);
+        if (book.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Pre-encoded bytes from the document cache: no Hibernate, no Jackson for hot books
+        BookDocumentCache.Document document = bookDocumentCache.get(book.get());
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = document.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        // The two encodings are different representations, so each gets its own strong ETag,
+        // and Vary is set before the check so 304s carry it too
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (request.checkNotModified(gzip ? document.etag() + "-gz" : document.etag())) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? document.gzip() : document.json());
+    }
+
+    // Cover image from the local cover directory (size=original|small|medium); pass v=<anything that
+    // changes with the image> to get immutable caching. Falls back to a redirect to Book.cover.
+    @GetMapping("/{id}/cover")
+    public void getBookCover(@PathVariable Integer id,
+            @RequestParam(defaultValue = "original") String size,
+            @RequestParam(required = false) String v,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Path> file;
+        try {
+            file = bookCoverService.findCover(id, size);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        if (file.isPresent()) {
+            bookCoverService.serve(file.get(), v != null, request, response);
+            return;
+        }
+
+        Optional<String> remote = bookService.getBookById(id)
+                .map(Book::getCover)
+                .filter(cover -> cover.startsWith("http://") || cover.startsWith("https://"));
+        if (remote.isPresent()) {
+            response.sendRedirect(remote.get());
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
     }
 
     // Create a new book
@@ -60,6 +153,22 @@ public class BookController {
         }
     }
 
+    // Bulk import a JSON array of books; returns counts and a per-row error report
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importBooks(@RequestBody List<Book> books) {
+        return ResponseEntity.ok(bookImportService.importBooks(books));
+    }
+
+    // Bulk import a CSV feed (header row required), streamed from the request body
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importBooksCsv(Reader body) throws IOException {
+        try {
+            return ResponseEntity.ok(bookImportService.importCsv(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // Update an existing book
     @PutMapping("/{id}")
     public ResponseEntity<?> updateBook(@PathVariable Integer id, @RequestBody Book book) {
@@ -68,8 +177,7 @@ public class BookController {
         }
 
         try {
-            Optional<Book> existingBook = bookService.getBookById(id);
-            if (existingBook.isEmpty()) {
+            if (!bookService.bookExists(id)) {
                 return ResponseEntity.notFound().build();
             }
 
@@ -98,17 +206,49 @@ public class BookController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "title") String sort,
             @RequestParam(required = false) String bookStatus,
-            @RequestParam(required = false) String genre) {
+            @RequestParam(required = false) String genre,
+            @RequestParam(defaultValue = "db") String mode,
+            @RequestParam(defaultValue = "page") String paging,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "none") String totals,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
             String[] sortParams = sort.split(",");
             String sortField = sortParams[0];
             String direction = sortParams.length > 1 ? sortParams[1] : "asc";
 
-            Map<String, Object> response = bookService.searchBooks(
-                    query, page, size, sortField, direction, bookStatus, genre);
+            Map<String, Object> response;
+            if (mode.equalsIgnoreCase("fuzzy")) {
+                // Trigram similarity over titles and authors, tolerant of misspellings
+                response = bookService.searchBooksFuzzy(query, page, size, bookStatus, genre);
+            } else if (mode.equalsIgnoreCase("index")) {
+                // Match against the in-memory inverted index instead of LIKE queries
+                response = bookService.searchBooksIndexed(query, page, size, sortField, direction, bookStatus, genre);
+            } else if (after != null || paging.equalsIgnoreCase("cursor")) {
+                // Keyset pagination: pass the returned nextCursor as "after" to get the next page
+                response = bookService.searchBooksByCursor(query, after, size, sortField, direction, bookStatus, genre);
+            } else if (paging.equalsIgnoreCase("slice")) {
+                // No exact count; totals=approximate adds a cached, periodically refreshed total
+                response = bookService.searchBooksSlice(query, page, size, sortField, direction, bookStatus, genre,
+                        totals.equalsIgnoreCase("approximate"));
+            } else if (isSummaryView(view)) {
+                // Select only the summary columns instead of full entities
+                response = bookService.searchBookSummaries(query, page, size, sortField, direction, bookStatus, genre);
+            } else {
+                response = bookService.searchBooks(query, page, size, sortField, direction, bookStatus, genre);
+            }
+
+            if (isSummaryView(view) && response.get("content") instanceof List<?> content) {
+                // Index, cursor and slice modes page over entities; trim them before serialization
+                response.put("content", content.stream()
+                        .map(item -> item instanceof Book book ? BookSummary.from(book) : item)
+                        .toList());
+            }
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error performing search: " + e.getMessage()));
@@ -117,21 +257,48 @@ public class BookController {
 
     // Add endpoint to get all available genres
     @GetMapping("/genres")
-    public ResponseEntity<List<String>> getAllGenres() {
+    public ResponseEntity<List<String>> getAllGenres(WebRequest request) {
         List<String> genres = bookService.getAllGenres();
+        if (request.checkNotModified(bookService.getGenresETag(genres))) {
+            return null;
+        }
         return ResponseEntity.ok(genres);
     }
 
+    // Typeahead for the search box (titles and authors ranked by units sold)
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestIndex.Suggestion>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.suggest(prefix, limit));
+    }
+
+    // Get genre and status counts for the filter sidebar
+    @GetMapping("/facets")
+    public ResponseEntity<Map<String, Object>> getFacets() {
+        return ResponseEntity.ok(bookService.getFacets());
+    }
+
     // Get books by genre
     @GetMapping("/genre/{genre}")
-    public ResponseEntity<List<Book>> getBooksByGenre(@PathVariable String genre) {
+    public ResponseEntity<List<?>> getBooksByGenre(@PathVariable String genre,
+            @RequestParam(defaultValue = "full") String view) {
         List<Book> books = bookService.getBooksByGenre(genre);
-        return ResponseEntity.ok(books);
+        return ResponseEntity.ok(render(books, view));
     }
 
     // Get books by author
     @GetMapping("/author/{author}")
-    public ResponseEntity<List<Book>> getBooksByAuthor(@PathVariable String author) {
+    public ResponseEntity<List<?>> getBooksByAuthor(@PathVariable String author,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
+        if (fuzzy) {
+            // Tolerates misspelled names ("Tolkein", "Dostoyevsky")
+            return ResponseEntity.ok(render(bookService.getBooksByAuthorFuzzy(author), view));
+        }
+        if (isSummaryView(view)) {
+            return ResponseEntity.ok(bookService.getBookSummariesByAuthor(author));
+        }
         List<Book> books = bookService.getBooksByAuthor(author);
         return ResponseEntity.ok(books);
     }
@@ -153,6 +320,16 @@ public class BookController {
         }
     }
 
+    // Bulk stock sync: [{bookId, stock} | {bookId, delta}, ...]; reports missing and rejected ids
+    @PatchMapping("/stock")
+    public ResponseEntity<?> adjustStock(@RequestBody List<StockAdjustment> adjustments) {
+        try {
+            return ResponseEntity.ok(bookStockService.adjustStock(adjustments));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // Update book status
     @PatchMapping("/{id}/status")
     public ResponseEntity<?> updateBookStatus(@PathVariable Integer id, @RequestBody Map<String, String> statusUpdate) {
@@ -171,23 +348,41 @@ public class BookController {
         }
     }
 
+    // Get in-memory catalog metrics
+    @GetMapping("/catalog/stats")
+    public ResponseEntity<Map<String, Object>> getCatalogStats() {
+        Map<String, Object> stats = new HashMap<>(bookService.getCatalogStats());
+        stats.put("documentCache", bookDocumentCache.getStats());
+        stats.put("inventoryLedger", bookService.getInventoryLedgerStats());
+        return ResponseEntity.ok(stats);
+    }
+
     // Get available books
     @GetMapping("/available")
-    public ResponseEntity<List<Book>> getAvailableBooks() {
+    public ResponseEntity<List<?>> getAvailableBooks(@RequestParam(defaultValue = "full") String view) {
         List<Book> books = bookService.getBooksByStatus(Book.BookStatus.available);
-        return ResponseEntity.ok(books);
+        return ResponseEntity.ok(render(books, view));
     }
 
     @GetMapping("/upcoming")
-    public ResponseEntity<List<Book>> getUpcomingBooks() {
+    public ResponseEntity<List<?>> getUpcomingBooks(@RequestParam(defaultValue = "full") String view) {
         List<Book> books = bookService.getBooksByStatus(Book.BookStatus.upcoming);
-        return ResponseEntity.ok(books);
+        return ResponseEntity.ok(render(books, view));
     }
 
     @GetMapping("/out_of_stock")
-    public ResponseEntity<List<Book>> getOutOfStockBooks() {
+    public ResponseEntity<List<?>> getOutOfStockBooks(@RequestParam(defaultValue = "full") String view) {
         List<Book> books = bookService.getBooksByStatus(Book.BookStatus.out_of_stock);
-        return ResponseEntity.ok(books);
+        return ResponseEntity.ok(render(books, view));
+    }
+
+    // view=summary returns BookSummary rows (no description or timestamps) for grid views
+    private static boolean isSummaryView(String view) {
+        return "summary".equalsIgnoreCase(view);
+    }
+
+    private static List<?> render(List<Book> books, String view) {
+        return isSummaryView(view) ? books.stream().map(BookSummary::from).toList() : books;
     }
 
 }
@@ -0,0 +1,147 @@
+package bookstore.demo.book;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+// Serves cover images from a local directory: <dir>/<bookId>.<ext> for the original and
+// <dir>/<size>/<bookId>.<ext> for pre-generated thumbnails. Bodies go out with Tomcat's sendfile
+// (the file is handed to the poller, no heap buffer, request thread released) or FileChannel.transferTo.
+@Service
+public class BookCoverService {
+
+    private static final List<String> EXTENSIONS = List.of("webp", "jpg", "jpeg", "png");
+
+    // Tomcat request attributes for sendfile (NIO connector, enabled by default)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_DEFAULT = "public, max-age=86400";
+
+    private final Path directory;
+    private final List<String> sizes;
+
+    public BookCoverService(@Value("${bookstore.covers.dir:covers}") String directory,
+            @Value("${bookstore.covers.sizes:small,medium}") List<String> sizes) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.sizes = sizes;
+    }
+
+    // Local cover file for a book and size ("original" or one of the configured thumbnail sizes)
+    public Optional<Path> findCover(Integer bookId, String size) {
+        Path folder;
+        if (size.equalsIgnoreCase("original")) {
+            folder = directory;
+        } else if (sizes.contains(size)) {
+            folder = directory.resolve(size);
+        } else {
+            throw new IllegalArgumentException("Invalid cover size: " + size);
+        }
+
+        for (String extension : EXTENSIONS) {
+            Path file = folder.resolve(bookId + "." + extension);
+            if (Files.isRegularFile(file)) {
+                return Optional.of(file);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Write the file with conditional GET, single byte-range and cache header support.
+    // versioned = the URL carries a version parameter, so the response may be cached as immutable.
+    public void serve(Path file, boolean versioned, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = "\"cover-" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, versioned ? CACHE_IMMUTABLE : CACHE_DEFAULT);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && isCurrent(request.getHeader(HttpHeaders.IF_RANGE), etag)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Only single ranges are served partially; anything else gets the whole file
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    // Range starts past the end of the file
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .map(Object::toString)
+                .orElse("application/octet-stream"));
+        response.setContentLengthLong(end - start + 1);
+        if (request.getMethod().equals("HEAD")) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat streams the file itself once the servlet returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            out.flush();
+        }
+    }
+
+    // If-Range: only honour the range when the client's copy is still the current one
+    private static boolean isCurrent(String ifRange, String etag) {
+        return ifRange == null || ifRange.equals(etag);
+    }
+}
@@ -0,0 +1,97 @@
+package bookstore.demo.book;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+// Opaque keyset cursor for book search: the sort order plus the sort key and BookID of the last row served
+record BookCursor(String sortField, String direction, Map<String, Object> keys) {
+
+    // Keyset comparisons are only well defined on NOT NULL columns
+    private static final Map<String, Class<?>> KEY_TYPES = Map.of(
+            "title", String.class,
+            "author", String.class,
+            "genre", String.class,
+            "price", BigDecimal.class,
+            "stock", Integer.class,
+            "createdAt", LocalDateTime.class,
+            "updatedAt", LocalDateTime.class,
+            "bookId", Integer.class);
+
+    // Cursor for the first page of a given sort order
+    static BookCursor first(String sortField, String direction) {
+        return new BookCursor(checkSortField(sortField), normalizeDirection(direction), Map.of());
+    }
+
+    // Cursor pointing after the given row position
+    static BookCursor of(String sortField, String direction, KeysetScrollPosition position) {
+        return new BookCursor(checkSortField(sortField), normalizeDirection(direction), position.getKeys());
+    }
+
+    static BookCursor decode(String token, ObjectMapper objectMapper) {
+        try {
+            JsonNode root = objectMapper.readTree(Base64.getUrlDecoder().decode(token));
+            String sortField = checkSortField(root.path("s").asText());
+            String direction = normalizeDirection(root.path("d").asText());
+
+            Map<String, Object> keys = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = root.path("k").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!field.getKey().equals(sortField) && !field.getKey().equals("bookId")) {
+                    throw new IllegalArgumentException("Unexpected cursor key");
+                }
+                keys.put(field.getKey(), objectMapper.convertValue(field.getValue(), KEY_TYPES.get(field.getKey())));
+            }
+            if (!keys.containsKey(sortField) || !keys.containsKey("bookId")) {
+                throw new IllegalArgumentException("Incomplete cursor");
+            }
+
+            return new BookCursor(sortField, direction, keys);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    String encode(ObjectMapper objectMapper) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("s", sortField);
+        payload.put("d", direction);
+        payload.put("k", keys);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(payload));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    boolean matches(String sortField, String direction) {
+        return this.sortField.equals(sortField) && this.direction.equals(normalizeDirection(direction));
+    }
+
+    ScrollPosition position() {
+        return keys.isEmpty() ? ScrollPosition.keyset() : ScrollPosition.forward(keys);
+    }
+
+    private static String checkSortField(String sortField) {
+        if (!KEY_TYPES.containsKey(sortField)) {
+            throw new IllegalArgumentException("Cursor pagination is not supported for sort field: " + sortField);
+        }
+        return sortField;
+    }
+
+    private static String normalizeDirection(String direction) {
+        return "desc".equalsIgnoreCase(direction) ? "desc" : "asc";
+    }
+}
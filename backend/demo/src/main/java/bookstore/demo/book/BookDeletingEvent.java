@@ -0,0 +1,6 @@
+package bookstore.demo.book;
+
+// Published by BookService inside the delete transaction, just before the Book row goes. Listeners
+// still see the rows that reference the book (e.g. cart items, removed with it by cascade).
+public record BookDeletingEvent(Integer bookId) {
+}
@@ -0,0 +1,113 @@
+package bookstore.demo.book;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Bounded LRU of pre-encoded /api/books/{id} responses (JSON, plus gzip when worth it).
+// Entries are tied to the catalog copy they were rendered from and dropped on every catalog change,
+// so hot books are served without touching Hibernate or Jackson.
+@Component
+public class BookDocumentCache implements BookCatalog.Listener {
+
+    // Below this the gzip framing costs more than it saves
+    private static final int GZIP_MIN_BYTES = 512;
+
+    private final ObjectMapper objectMapper;
+    private final BookService bookService;
+    private final Map<Integer, Document> documents;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public BookDocumentCache(ObjectMapper objectMapper, BookService bookService, BookCatalog bookCatalog,
+            @Value("${bookstore.books.document-cache-size:500}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.bookService = bookService;
+        this.documents = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Document> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        bookCatalog.addListener(this);
+    }
+
+    // Encoded response for a catalog book, rendered on first request
+    public Document get(Book book) {
+        synchronized (documents) {
+            Document document = documents.get(book.getBookId());
+            if (document != null && document.source() == book) {
+                hits.incrementAndGet();
+                return document;
+            }
+        }
+
+        misses.incrementAndGet();
+        Document rendered = render(book);
+        synchronized (documents) {
+            documents.put(book.getBookId(), rendered);
+        }
+        return rendered;
+    }
+
+    @Override
+    public void onReload(BookCatalog.Snapshot snapshot) {
+        synchronized (documents) {
+            documents.clear();
+        }
+    }
+
+    @Override
+    public void onChange(Book previous, Book current) {
+        synchronized (documents) {
+            if (previous != null) {
+                documents.remove(previous.getBookId());
+            }
+            if (current != null) {
+                documents.remove(current.getBookId());
+            }
+        }
+    }
+
+    // Hit/miss counters for monitoring
+    public Map<String, Object> getStats() {
+        synchronized (documents) {
+            return Map.of("size", documents.size(), "hits", hits.get(), "misses", misses.get());
+        }
+    }
+
+    private Document render(Book book) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(book);
+            byte[] gzip = json.length >= GZIP_MIN_BYTES ? gzip(json) : null;
+            return new Document(book, bookService.getBookETag(book), json, gzip);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize book " + book.getBookId(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // source is the catalog copy the bytes were rendered from; gzip is null when not worth compressing
+    public record Document(Book source, String etag, byte[] json, byte[] gzip) {
+    }
+}
@@ -0,0 +1,64 @@
+package bookstore.demo.book;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import jakarta.persistence.EntityManager;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Full-catalog export for feed partners. Rows are read through a streaming cursor and written out
+// one at a time, so memory use does not grow with the size of the catalog.
+@Service
+public class BookExportService {
+
+    public enum Format {
+        ndjson, json
+    }
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public BookExportService(BookRepository bookRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper.copy().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toLowerCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid export format: " + format);
+        }
+    }
+
+    // Write every book to the stream, either one JSON object per line or as a single JSON array
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream out, Format format) throws IOException {
+        long count = 0;
+        try (Stream<Book> books = bookRepository.streamAllByOrderByBookId();
+                SequenceWriter writer = format == Format.json
+                        ? objectMapper.writer().writeValuesAsArray(out)
+                        : objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            for (Book book : (Iterable<Book>) books::iterator) {
+                writer.write(book);
+                // Each row is dropped from the persistence context as soon as it is written
+                entityManager.detach(book);
+                count++;
+            }
+        }
+        if (format == Format.ndjson && count > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+package bookstore.demo.book;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Per-genre and per-status book counts for the catalog filter sidebar.
+// Counters are adjusted on every catalog change, so rendering never scans the catalog.
+@Component
+public class BookFacets implements BookCatalog.Listener {
+
+    private final BookCatalog bookCatalog;
+
+    // lowercase genre -> count; genre names group case-insensitively like the database collation
+    private final Map<String, Integer> genreCounts = new HashMap<>();
+    private final Map<String, String> genreNames = new HashMap<>();
+    private final Map<Book.BookStatus, Integer> statusCounts = new EnumMap<>(Book.BookStatus.class);
+    private int total;
+
+    // Rendered response, rebuilt lazily after a change
+    private volatile Map<String, Object> view;
+
+    public BookFacets(BookCatalog bookCatalog) {
+        this.bookCatalog = bookCatalog;
+        bookCatalog.addListener(this);
+    }
+
+    @Override
+    public synchronized void onReload(BookCatalog.Snapshot snapshot) {
+        genreCounts.clear();
+        genreNames.clear();
+        statusCounts.clear();
+        total = 0;
+        snapshot.books().forEach(book -> count(book, 1));
+        view = null;
+    }
+
+    @Override
+    public synchronized void onChange(Book previous, Book current) {
+        if (previous != null) {
+            count(previous, -1);
+        }
+        if (current != null) {
+            count(current, 1);
+        }
+        view = null;
+    }
+
+    // Current facet counts
+    public Map<String, Object> getFacets() {
+        bookCatalog.snapshot();
+        Map<String, Object> current = view;
+        return current != null ? current : render();
+    }
+
+    // Recount from the catalog to wipe out any drift; the catalog itself reconciles with the database
+    @Scheduled(fixedDelayString = "${bookstore.facets.reconcile-interval-ms:600000}",
+            initialDelayString = "${bookstore.facets.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        bookCatalog.replay(this);
+    }
+
+    private synchronized Map<String, Object> render() {
+        if (view != null) {
+            return view;
+        }
+
+        Map<String, Integer> genres = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        genreCounts.forEach((key, count) -> genres.put(genreNames.get(key), count));
+
+        Map<String, Integer> statuses = new LinkedHashMap<>();
+        for (Book.BookStatus status : Book.BookStatus.values()) {
+            statuses.put(status.name(), statusCounts.getOrDefault(status, 0));
+        }
+
+        Map<String, Object> rendered = new HashMap<>();
+        rendered.put("genres", Collections.unmodifiableMap(new LinkedHashMap<>(genres)));
+        rendered.put("statuses", Collections.unmodifiableMap(statuses));
+        rendered.put("total", total);
+
+        view = Collections.unmodifiableMap(rendered);
+        return view;
+    }
+
+    private void count(Book book, int delta) {
+        total += delta;
+        statusCounts.merge(book.getBookStatus(), delta, Integer::sum);
+
+        if (book.getGenre() != null) {
+            String key = book.getGenre().toLowerCase(Locale.ROOT);
+            int count = genreCounts.merge(key, delta, Integer::sum);
+            if (count <= 0) {
+                genreCounts.remove(key);
+                genreNames.remove(key);
+            } else {
+                genreNames.putIfAbsent(key, book.getGenre());
+            }
+        }
+    }
+}
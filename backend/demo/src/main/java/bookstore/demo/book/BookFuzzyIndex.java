@@ -0,0 +1,211 @@
+package bookstore.demo.book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Trigram index over titles and authors for typo-tolerant matching ("Tolkein" -> "Tolkien").
+// A book's score is the share of the query's trigrams it contains (best of title and author).
+// Candidates are drawn only from the postings of the query's rarest trigrams (a book sharing enough
+// trigrams must contain at least one of them), and at most maxPostings postings are visited per field,
+// so common trigrams like "the" do not make latency grow with the catalog.
+@Component
+public class BookFuzzyIndex implements BookCatalog.Listener {
+
+    private final BookCatalog bookCatalog;
+    private final double threshold;
+    private final int maxCandidates;
+    private final int maxPostings;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // trigram -> ids of books whose title/author contains it
+    private final Map<String, Set<Integer>> titlePostings = new HashMap<>();
+    private final Map<String, Set<Integer>> authorPostings = new HashMap<>();
+
+    // id -> trigrams indexed for that book, needed to unindex it and to break score ties
+    private final Map<Integer, Set<String>> titleGrams = new HashMap<>();
+    private final Map<Integer, Set<String>> authorGrams = new HashMap<>();
+
+    public BookFuzzyIndex(BookCatalog bookCatalog,
+            @Value("${bookstore.search.fuzzy-threshold:0.4}") double threshold,
+            @Value("${bookstore.search.fuzzy-max-candidates:200}") int maxCandidates,
+            @Value("${bookstore.search.fuzzy-max-postings:5000}") int maxPostings) {
+        this.bookCatalog = bookCatalog;
+        this.threshold = threshold;
+        this.maxCandidates = maxCandidates;
+        this.maxPostings = maxPostings;
+        bookCatalog.addListener(this);
+    }
+
+    @Override
+    public void onReload(BookCatalog.Snapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            titlePostings.clear();
+            authorPostings.clear();
+            titleGrams.clear();
+            authorGrams.clear();
+            snapshot.books().forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onChange(Book previous, Book current) {
+        lock.writeLock().lock();
+        try {
+            if (previous != null) {
+                unindex(previous.getBookId());
+            }
+            if (current != null) {
+                index(current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Books whose title or author (or only author) resembles the query, best match first
+    public List<Book> search(String query, boolean authorOnly, Book.BookStatus status, String genre) {
+        // First, so the catalog (and with it this index) is loaded before the postings are read
+        BookCatalog.Snapshot snapshot = bookCatalog.snapshot();
+        Set<String> grams = trigrams(query);
+        if (grams.isEmpty()) {
+            return List.of();
+        }
+
+        // Filters apply before the candidate cap, so filtered searches are not starved by other books
+        Predicate<Integer> eligible = id -> {
+            Book book = snapshot.byId().get(id);
+            return book != null
+                    && (status == null || book.getBookStatus() == status)
+                    && (genre == null || genre.equalsIgnoreCase(book.getGenre()));
+        };
+
+        Map<Integer, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            score(grams, authorPostings, authorGrams, eligible, scores);
+            if (!authorOnly) {
+                score(grams, titlePostings, titleGrams, eligible, scores);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Book> results = new ArrayList<>();
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> results.add(snapshot.byId().get(entry.getKey())));
+        return results;
+    }
+
+    // Collect eligible candidates from the rarest grams' postings, count their shared trigrams, keep the
+    // top candidates and record those above the threshold.
+    // Score = shared / query grams, plus a small Jaccard term so tighter matches rank first.
+    private void score(Set<String> query, Map<String, Set<Integer>> postings,
+            Map<Integer, Set<String>> documents, Predicate<Integer> eligible, Map<Integer, Double> scores) {
+        int minShared = Math.max(1, (int) Math.ceil(threshold * query.size()));
+        List<Set<Integer>> rarestFirst = query.stream()
+                .map(gram -> postings.getOrDefault(gram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .toList();
+
+        // Missing all of the (size - minShared + 1) rarest grams leaves too few to reach minShared
+        Map<Integer, Integer> shared = new HashMap<>();
+        int budget = maxPostings;
+        for (Set<Integer> ids : rarestFirst.subList(0, query.size() - minShared + 1)) {
+            for (Integer id : ids) {
+                if (budget-- == 0) {
+                    break;
+                }
+                if (!shared.containsKey(id) && eligible.test(id)) {
+                    shared.put(id, common(query, documents.get(id)));
+                }
+            }
+            if (budget < 0) {
+                break;
+            }
+        }
+
+        shared.entrySet().stream()
+                .filter(entry -> entry.getValue() >= minShared)
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxCandidates)
+                .forEach(entry -> {
+                    int common = entry.getValue();
+                    int union = query.size() + documents.get(entry.getKey()).size() - common;
+                    double score = (double) common / query.size() + 0.01 * common / union;
+                    scores.merge(entry.getKey(), score, Math::max);
+                });
+    }
+
+    private static int common(Set<String> query, Set<String> grams) {
+        int common = 0;
+        for (String gram : query) {
+            if (grams.contains(gram)) {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    private void index(Book book) {
+        add(book.getBookId(), trigrams(book.getTitle()), titlePostings, titleGrams);
+        add(book.getBookId(), trigrams(book.getAuthor()), authorPostings, authorGrams);
+    }
+
+    private void unindex(Integer bookId) {
+        remove(bookId, titlePostings, titleGrams);
+        remove(bookId, authorPostings, authorGrams);
+    }
+
+    private static void add(Integer bookId, Set<String> grams,
+            Map<String, Set<Integer>> postings, Map<Integer, Set<String>> documents) {
+        documents.put(bookId, grams);
+        grams.forEach(gram -> postings.computeIfAbsent(gram, g -> new HashSet<>()).add(bookId));
+    }
+
+    private static void remove(Integer bookId, Map<String, Set<Integer>> postings,
+            Map<Integer, Set<String>> documents) {
+        Set<String> grams = documents.remove(bookId);
+        if (grams == null) {
+            return;
+        }
+        for (String gram : grams) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(bookId);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    // Word trigrams padded like pg_trgm ("  t", " to", "tol", ..., "en "), so word starts and ends weigh in
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String word : BookText.tokenize(text)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,380 @@
+package bookstore.demo.book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Bulk import of supplier feeds. Rows are validated and deduplicated in chunks (one lookup per chunk
+// instead of one per book) and inserted with JDBC batches, which Hibernate cannot do for IDENTITY ids.
+@Service
+public class BookImportService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_ERRORS = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO Book "
+            + "(Title, Price, BookDescription, BookStatus, Cover, Genre, Author, Stock) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "title", "author", "genre", "price", "stock", "bookStatus", "cover", "bookDescription");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BookCatalog bookCatalog;
+
+    public BookImportService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+            TransactionTemplate transactionTemplate, BookCatalog bookCatalog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.bookCatalog = bookCatalog;
+    }
+
+    // Import a JSON array of books; row numbers in the report are 1-based array positions
+    public Map<String, Object> importBooks(List<Book> books) {
+        Import result = new Import();
+        for (Book book : books) {
+            result.add(book);
+        }
+        return result.finish();
+    }
+
+    // Import a CSV feed with a header row naming the columns (title, author, genre, price, stock,
+    // bookStatus, cover, bookDescription); row numbers in the report are data rows after the header
+    public Map<String, Object> importCsv(Reader source) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            throw new IllegalArgumentException("CSV feed is empty");
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim();
+            int index = i;
+            CSV_COLUMNS.stream()
+                    .filter(column -> column.equalsIgnoreCase(name))
+                    .findFirst()
+                    .ifPresent(column -> columns.put(column, index));
+        }
+        for (String required : List.of("title", "author", "genre", "price", "stock")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing column: " + required);
+            }
+        }
+
+        Import result = new Import();
+        while (true) {
+            List<String> record;
+            try {
+                record = readCsvRecord(reader);
+            } catch (IllegalArgumentException e) {
+                // The rest of the feed cannot be split into records; report the row and keep what was imported
+                result.reject(e.getMessage());
+                break;
+            }
+            if (record == null) {
+                break;
+            }
+            try {
+                result.add(fromCsv(record, columns));
+            } catch (IllegalArgumentException e) {
+                result.reject(e.getMessage());
+            }
+        }
+        return result.finish();
+    }
+
+    // Accumulates rows into chunks, flushes each chunk as one batch and collects the report
+    private final class Import {
+
+        private final Set<String> seen = new HashSet<>();
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private final List<Integer> pendingRows = new ArrayList<>();
+        private final List<Book> pending = new ArrayList<>();
+        private int rows;
+        private int inserted;
+        private int duplicates;
+        private int failed;
+
+        void add(Book book) {
+            rows++;
+            try {
+                validate(book);
+            } catch (IllegalArgumentException e) {
+                error(rows, e.getMessage());
+                return;
+            }
+
+            // Duplicates within the feed itself
+            if (!seen.add(key(book.getTitle(), book.getAuthor()))) {
+                duplicate(rows);
+                return;
+            }
+
+            pendingRows.add(rows);
+            pending.add(book);
+            if (pending.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(String message) {
+            rows++;
+            error(rows, message);
+        }
+
+        Map<String, Object> finish() {
+            flush();
+            if (inserted > 0) {
+                bookCatalog.reload();
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("rows", rows);
+            report.put("inserted", inserted);
+            report.put("duplicates", duplicates);
+            report.put("failed", failed);
+            report.put("errors", errors);
+            return report;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            Set<String> existing = findExisting(pending);
+            List<Book> batch = new ArrayList<>();
+            List<Integer> batchRows = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                Book book = pending.get(i);
+                if (existing.contains(key(book.getTitle(), book.getAuthor()))) {
+                    duplicate(pendingRows.get(i));
+                } else {
+                    batch.add(book);
+                    batchRows.add(pendingRows.get(i));
+                }
+            }
+            insert(batch, batchRows);
+
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        private void insert(List<Book> batch, List<Integer> batchRows) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                // One transaction per chunk so a failed batch leaves nothing behind
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), BookImportService::bind));
+                inserted += batch.size();
+            } catch (DataAccessException e) {
+                // The chunk was rolled back; retry row by row to pin the error on the offending rows
+                for (int i = 0; i < batch.size(); i++) {
+                    Book book = batch.get(i);
+                    try {
+                        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, book));
+                        inserted++;
+                    } catch (DataAccessException rowError) {
+                        error(batchRows.get(i), rootMessage(rowError));
+                    }
+                }
+            }
+        }
+
+        private void duplicate(int row) {
+            duplicates++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(Map.of("row", row, "error", "Duplicate title/author", "skipped", true));
+            }
+        }
+
+        private void error(int row, String message) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(Map.of("row", row, "error", message));
+            }
+        }
+    }
+
+    // Title/author pairs from the chunk that already exist, in one query
+    private Set<String> findExisting(List<Book> books) {
+        Set<String> titles = new HashSet<>();
+        books.forEach(book -> titles.add(book.getTitle()));
+
+        // The column collation is case-insensitive, so IN matches regardless of case
+        Set<String> existing = new HashSet<>();
+        namedJdbcTemplate.query("SELECT Title, Author FROM Book WHERE Title IN (:titles)",
+                Map.of("titles", titles),
+                rs -> {
+                    existing.add(key(rs.getString("Title"), rs.getString("Author")));
+                });
+        return existing;
+    }
+
+    private static void bind(PreparedStatement ps, Book book) throws SQLException {
+        ps.setString(1, book.getTitle());
+        ps.setBigDecimal(2, book.getPrice());
+        ps.setString(3, book.getBookDescription());
+        ps.setString(4, book.getBookStatus().name());
+        ps.setString(5, book.getCover());
+        ps.setString(6, book.getGenre());
+        ps.setString(7, book.getAuthor());
+        ps.setInt(8, book.getStock());
+    }
+
+    // Same rules as BookService.saveBook, plus the column limits the database would reject
+    private static void validate(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Row is empty");
+        }
+        if (book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book title cannot be empty");
+        }
+        if (book.getAuthor() == null || book.getAuthor().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book author cannot be empty");
+        }
+        if (book.getGenre() == null || book.getGenre().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book genre cannot be empty");
+        }
+        if (book.getPrice() == null || book.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("Book price must be non-negative");
+        }
+        if (book.getStock() == null || book.getStock() < 0) {
+            throw new IllegalArgumentException("Book stock must be non-negative");
+        }
+        book.setTitle(book.getTitle().trim());
+        book.setAuthor(book.getAuthor().trim());
+        book.setGenre(book.getGenre().trim());
+        if (book.getTitle().length() > 255 || book.getAuthor().length() > 100 || book.getGenre().length() > 50
+                || (book.getCover() != null && book.getCover().length() > 255)) {
+            throw new IllegalArgumentException("Book field exceeds maximum length");
+        }
+
+        // Stock drives status the same way updateBookStock does
+        if (book.getBookStatus() == null) {
+            book.setBookStatus(Book.BookStatus.available);
+        }
+        if (book.getStock() == 0 && book.getBookStatus() == Book.BookStatus.available) {
+            book.setBookStatus(Book.BookStatus.out_of_stock);
+        }
+    }
+
+    private static Book fromCsv(List<String> record, Map<String, Integer> columns) {
+        Book book = new Book();
+        book.setTitle(field(record, columns, "title"));
+        book.setAuthor(field(record, columns, "author"));
+        book.setGenre(field(record, columns, "genre"));
+        book.setCover(field(record, columns, "cover"));
+        book.setBookDescription(field(record, columns, "bookDescription"));
+
+        String price = field(record, columns, "price");
+        String stock = field(record, columns, "stock");
+        String status = field(record, columns, "bookStatus");
+        try {
+            book.setPrice(price != null ? new BigDecimal(price) : null);
+            book.setStock(stock != null ? Integer.valueOf(stock) : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in price or stock");
+        }
+        if (status != null) {
+            try {
+                book.setBookStatus(Book.BookStatus.valueOf(status.toLowerCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid book status: " + status);
+            }
+        }
+        return book;
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // One CSV record (RFC 4180 quoting, quoted fields may span lines), or null at end of input
+    static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.isBlank()) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("Unterminated quoted field in CSV feed");
+            }
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String key(String title, String author) {
+        return title.trim().toLowerCase(Locale.ROOT) + '\u0000' + author.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String rootMessage(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        if (cause instanceof BatchUpdateException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return String.valueOf(cause.getMessage());
+    }
+}
@@ -1,15 +1,26 @@
 package bookstore.demo.book;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book> {
+public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
 
     // Find books by title (case insensitive, partial match)
     List<Book> findByTitleContainingIgnoreCase(String title);
@@ -20,6 +31,9 @@ public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecifi
     // Find books by author (case insensitive, partial match)
     List<Book> findByAuthorContainingIgnoreCase(String author);
 
+    // Same, selecting only the summary columns
+    List<BookSummary> findSummariesByAuthorContainingIgnoreCase(String author);
+
     // Find books by status
     List<Book> findByBookStatus(Book.BookStatus status);
 
@@ -27,6 +41,60 @@ public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecifi
 
     Optional<Book> findByTitleAndAuthorIgnoreCase(String title, String author);
 
+    // Units sold per book over all non-canceled orders (popularity for typeahead ranking)
+    @Query("SELECT oi.book.bookId, SUM(oi.quantity) FROM OrderItems oi "
+            + "WHERE oi.book IS NOT NULL AND oi.order.orderStatus <> bookstore.demo.customerOrder.CustomerOrder.OrderStatus.canceled "
+            + "GROUP BY oi.book.bookId")
+    List<Object[]> sumQuantitySoldByBook();
+
+    // SELECT ... FOR UPDATE in BookID order: concurrent checkouts lock shared books in the same order,
+    // so they queue behind each other instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.bookId IN :ids ORDER BY b.bookId")
+    List<Book> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
+
+    // Atomic stock changes: the check, the new level and the status are one statement, so concurrent
+    // checkouts cannot oversell. BookStatus is assigned first because MySQL evaluates SET left to right.
+    // Each returns the affected row count (0 = book missing or, for decrements, not enough stock).
+
+    // Take quantity units if at least that many are left; sold out -> out_of_stock
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Book SET "
+            + "BookStatus = CASE WHEN Stock = :quantity THEN 'out_of_stock' ELSE BookStatus END, "
+            + "Stock = Stock - :quantity "
+            + "WHERE BookID = :bookId AND Stock >= :quantity", nativeQuery = true)
+    int decrementStock(@Param("bookId") Integer bookId, @Param("quantity") int quantity);
+
+    // Put quantity units back; a sold-out book becomes available again
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Book SET "
+            + "BookStatus = CASE WHEN BookStatus = 'out_of_stock' AND Stock + :quantity > 0 THEN 'available' ELSE BookStatus END, "
+            + "Stock = Stock + :quantity "
+            + "WHERE BookID = :bookId", nativeQuery = true)
+    int incrementStock(@Param("bookId") Integer bookId, @Param("quantity") int quantity);
+
+    // Set an absolute stock level with the same status rules
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Book SET "
+            + "BookStatus = CASE WHEN :stock = 0 THEN 'out_of_stock' "
+            + "WHEN BookStatus = 'out_of_stock' THEN 'available' ELSE BookStatus END, "
+            + "Stock = :stock "
+            + "WHERE BookID = :bookId", nativeQuery = true)
+    int setStock(@Param("bookId") Integer bookId, @Param("stock") int stock);
+
+    // Forward-only cursor over the whole table for exports. Integer.MIN_VALUE makes the MySQL driver
+    // stream rows one at a time instead of buffering the result set; must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.bookId")
+    Stream<Book> streamAllByOrderByBookId();
+
     // Get distinct genres for dropdown filter
     @Query("SELECT DISTINCT b.genre FROM Book b ORDER BY b.genre")
     List<String> findDistinctGenres();
@@ -0,0 +1,16 @@
+package bookstore.demo.book;
+
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface BookRepositoryCustom {
+
+    // Paged search that only selects the BookSummary columns
+    Page<BookSummary> findSummaries(Specification<Book> spec, Pageable pageable);
+
+    // decrementStock for many books (bookId -> quantity) in one statement; returns the rows updated
+    int decrementStocks(Map<Integer, Integer> quantities);
+}
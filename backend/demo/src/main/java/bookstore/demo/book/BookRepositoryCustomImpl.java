@@ -0,0 +1,94 @@
+package bookstore.demo.book;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<BookSummary> findSummaries(Specification<Book> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BookSummary> query = cb.createQuery(BookSummary.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(cb.construct(BookSummary.class,
+                root.get("bookId"),
+                root.get("title"),
+                root.get("author"),
+                root.get("price"),
+                root.get("cover"),
+                root.get("bookStatus")));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<BookSummary> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<BookSummary> content = typedQuery.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    private long count(Specification<Book> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(cb.count(root));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // Same rules as BookRepository.decrementStock, with the per-book quantity picked by a CASE on BookID.
+    // Ids and quantities are Integers, so they are written into the statement directly.
+    @Override
+    @Transactional
+    public int decrementStocks(Map<Integer, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        String quantity = quantities.entrySet().stream()
+                .map(entry -> "WHEN " + entry.getKey() + " THEN " + entry.getValue())
+                .collect(Collectors.joining(" ", "(CASE BookID ", " END)"));
+        String ids = quantities.keySet().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(", ", "(", ")"));
+
+        return entityManager.createNativeQuery("UPDATE Book SET "
+                + "BookStatus = CASE WHEN Stock = " + quantity + " THEN 'out_of_stock' ELSE BookStatus END, "
+                + "Stock = Stock - " + quantity + " "
+                + "WHERE BookID IN " + ids + " AND Stock >= " + quantity)
+                .executeUpdate();
+    }
+}
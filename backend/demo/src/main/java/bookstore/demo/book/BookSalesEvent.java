@@ -0,0 +1,10 @@
+package bookstore.demo.book;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Units sold per book, published when orders are placed (positive) or canceled (negative).
+// orderedAt is when the order was placed, so cancellations are taken off the right sales period;
+// orderId lets a rebuild tell whether its scan already reflects the event.
+public record BookSalesEvent(Integer orderId, LocalDateTime orderedAt, Map<Integer, Integer> quantities) {
+}
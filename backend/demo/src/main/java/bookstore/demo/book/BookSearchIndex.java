@@ -0,0 +1,176 @@
+package bookstore.demo.book;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+// Tokenized inverted index over title, author, genre and description.
+// Built from the in-memory catalog and kept in sync through its change callbacks,
+// so matching never goes to the database.
+@Component
+public class BookSearchIndex implements BookCatalog.Listener {
+
+    private final BookCatalog bookCatalog;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // token -> ids of books containing it; sorted so prefix lookups are range scans
+    private final NavigableMap<String, Set<Integer>> postings = new TreeMap<>();
+
+    // id -> tokens indexed for that book, needed to unindex it on update/delete
+    private final Map<Integer, Set<String>> documents = new HashMap<>();
+
+    public BookSearchIndex(BookCatalog bookCatalog) {
+        this.bookCatalog = bookCatalog;
+        bookCatalog.addListener(this);
+    }
+
+    @Override
+    public void onReload(BookCatalog.Snapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            snapshot.books().forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onChange(Book previous, Book current) {
+        lock.writeLock().lock();
+        try {
+            if (previous != null) {
+                unindex(previous.getBookId());
+            }
+            if (current != null) {
+                index(current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Find books matching every query token (prefix match), filtered by status/genre and sorted
+    public List<Book> search(String query, Book.BookStatus status, String genre, Comparator<Book> order) {
+        BookCatalog.Snapshot snapshot = bookCatalog.snapshot();
+        List<String> tokens = BookText.tokenize(query);
+
+        Collection<Book> candidates;
+        if (tokens.isEmpty()) {
+            candidates = genre != null ? snapshot.findByGenre(genre)
+                    : status != null ? snapshot.findByStatus(status)
+                    : snapshot.books();
+        } else {
+            candidates = new ArrayList<>();
+            for (Integer id : match(tokens)) {
+                Book book = snapshot.byId().get(id);
+                if (book != null) {
+                    candidates.add(book);
+                }
+            }
+        }
+
+        List<Book> results = new ArrayList<>();
+        for (Book book : candidates) {
+            if (status != null && book.getBookStatus() != status) {
+                continue;
+            }
+            if (genre != null && !genre.equalsIgnoreCase(book.getGenre())) {
+                continue;
+            }
+            results.add(book);
+        }
+
+        results.sort(order);
+        return results;
+    }
+
+    // Sort order equivalent to the Sort used by the database search
+    static Comparator<Book> comparator(String sortField, String direction) {
+        Comparator<Book> order = switch (sortField) {
+            case "title" -> Comparator.comparing(Book::getTitle, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "author" -> Comparator.comparing(Book::getAuthor, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "genre" -> Comparator.comparing(Book::getGenre, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "price" -> Comparator.comparing(Book::getPrice, Comparator.nullsLast(Comparator.<BigDecimal>naturalOrder()));
+            case "stock" -> Comparator.comparing(Book::getStock, Comparator.nullsLast(Comparator.<Integer>naturalOrder()));
+            case "bookStatus" -> Comparator.comparing(Book::getBookStatus, Comparator.nullsLast(Comparator.<Book.BookStatus>naturalOrder()));
+            case "createdAt" -> Comparator.comparing(Book::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()));
+            case "updatedAt" -> Comparator.comparing(Book::getUpdatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()));
+            case "bookId" -> Comparator.comparing(Book::getBookId);
+            default -> throw new IllegalArgumentException("Unsupported sort field: " + sortField);
+        };
+
+        if (direction.equalsIgnoreCase("desc")) {
+            order = order.reversed();
+        }
+        return order.thenComparing(Book::getBookId);
+    }
+
+    private Set<Integer> match(List<String> tokens) {
+        lock.readLock().lock();
+        try {
+            Set<Integer> result = null;
+            for (String token : tokens) {
+                Set<Integer> ids = new HashSet<>();
+                for (Set<Integer> posting : postings.subMap(token, true, token + Character.MAX_VALUE, true).values()) {
+                    ids.addAll(posting);
+                }
+
+                if (result == null) {
+                    result = ids;
+                } else {
+                    result.retainAll(ids);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Book book) {
+        Set<String> tokens = new HashSet<>();
+        tokens.addAll(BookText.tokenize(book.getTitle()));
+        tokens.addAll(BookText.tokenize(book.getAuthor()));
+        tokens.addAll(BookText.tokenize(book.getGenre()));
+        tokens.addAll(BookText.tokenize(book.getBookDescription()));
+
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> new HashSet<>()).add(book.getBookId());
+        }
+        documents.put(book.getBookId(), tokens);
+    }
+
+    private void unindex(Integer bookId) {
+        Set<String> tokens = documents.remove(bookId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Set<Integer> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(bookId);
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+}
@@ -1,33 +1,63 @@
 package bookstore.demo.book;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
 @Service
 public class BookService {
 
     private final BookRepository bookRepository;
-
-    public BookService(BookRepository bookRepository) {
+    private final BookCatalog bookCatalog;
+    private final BookSearchIndex bookSearchIndex;
+    private final SearchCountCache searchCountCache;
+    private final BookFacets bookFacets;
+    private final BookSuggestIndex bookSuggestIndex;
+    private final BookFuzzyIndex bookFuzzyIndex;
+    private final InventoryLedger inventoryLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    public BookService(BookRepository bookRepository, BookCatalog bookCatalog, BookSearchIndex bookSearchIndex,
+            SearchCountCache searchCountCache, BookFacets bookFacets, BookSuggestIndex bookSuggestIndex,
+            BookFuzzyIndex bookFuzzyIndex, InventoryLedger inventoryLedger, ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
         this.bookRepository = bookRepository;
+        this.bookCatalog = bookCatalog;
+        this.bookSearchIndex = bookSearchIndex;
+        this.searchCountCache = searchCountCache;
+        this.bookFacets = bookFacets;
+        this.bookSuggestIndex = bookSuggestIndex;
+        this.bookFuzzyIndex = bookFuzzyIndex;
+        this.inventoryLedger = inventoryLedger;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
 
-    // Get all books
+    // Get all books (served from the in-memory catalog)
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        return bookCatalog.snapshot().books();
     }
 
-    // Find a book by ID
+    // Find a book by ID (served from the in-memory catalog)
     public Optional<Book> getBookById(Integer id) {
-        return bookRepository.findById(id);
+        return bookCatalog.snapshot().findById(id);
     }
 
     public Optional<Book> getBookByTitleAndAuthor(String title, String author) {
@@ -51,10 +81,13 @@ public class BookService {
             throw new IllegalArgumentException("Book stock must be non-negative");
         }
 
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangeEvent.saved(savedBook));
+        return savedBook;
     }
 
     // Update an existing book
+    @Transactional
     public Book updateBook(Book book) {
         // Basic validation
         if (book.getTitle() == null || book.getTitle().trim().isEmpty()) {
@@ -67,7 +100,12 @@ public class BookService {
             throw new IllegalArgumentException("Book stock must be non-negative");
         }
 
-        return bookRepository.save(book);
+        Book updatedBook = bookRepository.saveAndFlush(book);
+        if (inventoryLedger.isEnabled()) {
+            inventoryLedger.overwrite(updatedBook.getBookId(), updatedBook.getStock());
+        }
+        eventPublisher.publishEvent(BookChangeEvent.saved(updatedBook));
+        return updatedBook;
     }
 
     // Check if book exists by ID
@@ -76,8 +114,11 @@ public class BookService {
     }
 
     // Delete book by ID
+    @Transactional
     public void deleteBook(Integer id) {
+        eventPublisher.publishEvent(new BookDeletingEvent(id));
         bookRepository.deleteById(id);
+        eventPublisher.publishEvent(BookChangeEvent.deleted(id));
     }
 
     // Search books by title (partial match)
@@ -85,9 +126,9 @@ public class BookService {
         return bookRepository.findByTitleContainingIgnoreCase(query);
     }
 
-    // Get books by genre
+    // Get books by genre (served from the in-memory catalog)
     public List<Book> getBooksByGenre(String genre) {
-        return bookRepository.findByGenreIgnoreCase(genre);
+        return bookCatalog.snapshot().findByGenre(genre);
     }
 
     // Get books by author
@@ -95,25 +136,83 @@ public class BookService {
         return bookRepository.findByAuthorContainingIgnoreCase(author);
     }
 
+    // Get books by author, selecting only the summary columns
+    public List<BookSummary> getBookSummariesByAuthor(String author) {
+        return bookRepository.findSummariesByAuthorContainingIgnoreCase(author);
+    }
+
     // Update book stock
+    @Transactional
     public Book updateBookStock(Integer id, Integer newStock) {
         if (newStock < 0) {
             throw new IllegalArgumentException("Stock cannot be negative");
         }
 
-        Book book = bookRepository.findById(id)
+        // Single conditional UPDATE (status recomputed in SQL), so it cannot overwrite a concurrent checkout
+        if (bookRepository.setStock(id, newStock) == 0) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        // The new level replaces any units the ledger admitted but has not written yet
+        if (inventoryLedger.isEnabled()) {
+            inventoryLedger.overwrite(id, newStock);
+        }
+
+        Book updatedBook = bookRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found"));
+        eventPublisher.publishEvent(BookChangeEvent.changed(List.of(id)));
+        return updatedBook;
+    }
+
+    // Atomically take quantity units of a book; false if it does not exist or has too little stock left.
+    // With the inventory ledger enabled this is admitted in memory and written to the table in batches.
+    public boolean decrementStock(Integer id, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (inventoryLedger.isEnabled()) {
+            return inventoryLedger.reserve(id, quantity);
+        }
+        if (bookRepository.decrementStock(id, quantity) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(BookChangeEvent.changed(List.of(id)));
+        return true;
+    }
 
-        book.setStock(newStock);
+    // Lock the given books for the rest of the caller's transaction (one SELECT ... FOR UPDATE, BookID order)
+    public List<Book> lockBooks(Collection<Integer> ids) {
+        return bookRepository.findAllByIdForUpdate(ids);
+    }
 
-        // Auto-update status based on stock level
-        if (newStock == 0) {
-            book.setBookStatus(Book.BookStatus.out_of_stock);
-        } else if (book.getBookStatus() == Book.BookStatus.out_of_stock) {
-            book.setBookStatus(Book.BookStatus.available);
+    // decrementStock for a whole order (bookId -> quantity) in one statement, all or nothing: false if any
+    // book is missing or short, in which case the caller must roll back (a partial update is not undone here).
+    public boolean decrementStocks(Map<Integer, Integer> quantities) {
+        if (quantities.values().stream().anyMatch(quantity -> quantity <= 0)) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (inventoryLedger.isEnabled()) {
+            return quantities.entrySet().stream()
+                    .allMatch(entry -> inventoryLedger.reserve(entry.getKey(), entry.getValue()));
+        }
+        if (bookRepository.decrementStocks(quantities) != quantities.size()) {
+            return false;
         }
+        eventPublisher.publishEvent(BookChangeEvent.changed(quantities.keySet()));
+        return true;
+    }
 
-        return bookRepository.save(book);
+    // Atomically return quantity units of a book (cancellations, removed order items)
+    public void incrementStock(Integer id, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (inventoryLedger.isEnabled()) {
+            inventoryLedger.release(id, quantity);
+            return;
+        }
+        if (bookRepository.incrementStock(id, quantity) > 0) {
+            eventPublisher.publishEvent(BookChangeEvent.changed(List.of(id)));
+        }
     }
 
     // Update book status
@@ -126,12 +225,14 @@ public class BookService {
         }
 
         book.setBookStatus(status);
-        return bookRepository.save(book);
+        Book updatedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangeEvent.saved(updatedBook));
+        return updatedBook;
     }
 
-    // Get books by status
+    // Get books by status (served from the in-memory catalog)
     public List<Book> getBooksByStatus(Book.BookStatus status) {
-        return bookRepository.findByBookStatus(status);
+        return bookCatalog.snapshot().findByStatus(status);
     }
 
     public Map<String, Object> searchBooks(
@@ -144,35 +245,7 @@ public class BookService {
             Sort sort = Sort.by(sortDirection, sortField);
             PageRequest pageable = PageRequest.of(page, size, sort);
 
-            Specification<Book> spec = Specification.where(null);
-
-            if (query != null && !query.trim().isEmpty()) {
-                String searchTerm = "%" + query.toLowerCase() + "%";
-                spec = spec.and((root, criteriaQuery, criteriaBuilder)
-                        -> criteriaBuilder.or(
-                                criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), searchTerm),
-                                criteriaBuilder.like(criteriaBuilder.lower(root.get("author")), searchTerm)
-                        )
-                );
-            }
-
-            if (bookStatus != null && !bookStatus.isEmpty() && !bookStatus.equalsIgnoreCase("all")) {
-                Book.BookStatus status;
-                try {
-                    status = Book.BookStatus.valueOf(bookStatus);
-                    spec = spec.and((root, criteriaQuery, criteriaBuilder)
-                            -> criteriaBuilder.equal(root.get("bookStatus"), status)
-                    );
-                } catch (IllegalArgumentException e) {
-                    // Ignore invalid status
-                }
-            }
-
-            if (genre != null && !genre.isEmpty() && !genre.equalsIgnoreCase("all")) {
-                spec = spec.and((root, criteriaQuery, criteriaBuilder)
-                        -> criteriaBuilder.equal(root.get("genre"), genre)
-                );
-            }
+            Specification<Book> spec = buildSearchSpecification(query, bookStatus, genre);
 
             Page<Book> booksPage = bookRepository.findAll(spec, pageable);
 
@@ -189,7 +262,249 @@ public class BookService {
         }
     }
 
+    // Paged search returning BookSummary rows; only the summary columns are selected
+    public Map<String, Object> searchBookSummaries(
+            String query, int page, int size, String sortField,
+            String direction, String bookStatus, String genre) {
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC : Sort.Direction.ASC;
+        PageRequest pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortField));
+
+        Page<BookSummary> summaries = bookRepository.findSummaries(
+                buildSearchSpecification(query, bookStatus, genre), pageable);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", summaries.getContent());
+        result.put("currentPage", summaries.getNumber());
+        result.put("totalItems", summaries.getTotalElements());
+        result.put("totalPages", summaries.getTotalPages());
+
+        return result;
+    }
+
+    // Search books as a slice: fetches size + 1 rows to detect a next page and skips the COUNT(*).
+    // With approximateTotals, totals come from a periodically refreshed per-search count cache.
+    public Map<String, Object> searchBooksSlice(
+            String query, int page, int size, String sortField,
+            String direction, String bookStatus, String genre, boolean approximateTotals) {
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(sortDirection, sortField);
+
+        // Offset positions point at the last row already seen
+        ScrollPosition position = page == 0
+                ? ScrollPosition.offset()
+                : ScrollPosition.offset((long) page * size - 1);
+
+        // Parsed once, so the count cache is keyed by exactly what the query filters on
+        String term = parseQueryFilter(query);
+        Book.BookStatus status = parseStatusFilter(bookStatus);
+        String genreFilter = parseGenreFilter(genre);
+        Specification<Book> spec = searchSpecification(term, status, genreFilter);
+        Window<Book> window = bookRepository.findBy(spec, q -> q
+                .sortBy(sort)
+                .limit(size)
+                .scroll(position));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", window.getContent());
+        result.put("currentPage", page);
+        result.put("size", window.size());
+        result.put("hasNext", window.hasNext());
+
+        if (approximateTotals) {
+            long total = searchCountCache.getCount(term, status, genreFilter, () -> bookRepository.count(spec));
+            result.put("totalItems", total);
+            result.put("totalPages", size == 0 ? 1 : (int) Math.ceil((double) total / size));
+            result.put("approximateTotal", true);
+        }
+
+        return result;
+    }
+
+    // Search books with keyset (cursor) pagination: one index range scan per page, no OFFSET and no COUNT
+    public Map<String, Object> searchBooksByCursor(
+            String query, String after, int size, String sortField,
+            String direction, String bookStatus, String genre) {
+
+        BookCursor cursor = after == null || after.isEmpty()
+                ? BookCursor.first(sortField, direction)
+                : BookCursor.decode(after, objectMapper);
+
+        if (!cursor.matches(sortField, direction)) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC : Sort.Direction.ASC;
+        // BookID breaks ties so every row has a unique position (and is the whole key when sorting by it)
+        Sort sort = sortField.equals("bookId")
+                ? Sort.by(sortDirection, "bookId")
+                : Sort.by(sortDirection, sortField).and(Sort.by(sortDirection, "bookId"));
+
+        Specification<Book> spec = buildSearchSpecification(query, bookStatus, genre);
+        Window<Book> window = bookRepository.findBy(spec, q -> q
+                .sortBy(sort)
+                .limit(size)
+                .scroll(cursor.position()));
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            nextCursor = BookCursor.of(sortField, direction, last).encode(objectMapper);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", window.getContent());
+        result.put("size", window.size());
+        result.put("hasNext", window.hasNext());
+        result.put("nextCursor", nextCursor);
+
+        return result;
+    }
+
+    // Search books through the in-memory inverted index (no database access for matching)
+    public Map<String, Object> searchBooksIndexed(
+            String query, int page, int size, String sortField,
+            String direction, String bookStatus, String genre) {
+
+        List<Book> matches = bookSearchIndex.search(
+                query, parseStatusFilter(bookStatus), parseGenreFilter(genre),
+                BookSearchIndex.comparator(sortField, direction));
+
+        int from = Math.min(page * size, matches.size());
+        int to = Math.min(from + size, matches.size());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", matches.subList(from, to));
+        result.put("currentPage", page);
+        result.put("totalItems", (long) matches.size());
+        result.put("totalPages", size == 0 ? 1 : (int) Math.ceil((double) matches.size() / size));
+
+        return result;
+    }
+
+    // Typo-tolerant search over titles and authors, ordered by similarity (sort is ignored)
+    public Map<String, Object> searchBooksFuzzy(
+            String query, int page, int size, String bookStatus, String genre) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Fuzzy search needs a query");
+        }
+
+        List<Book> matches = bookFuzzyIndex.search(query, false, parseStatusFilter(bookStatus), parseGenreFilter(genre));
+
+        int from = Math.min(page * size, matches.size());
+        int to = Math.min(from + size, matches.size());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", matches.subList(from, to));
+        result.put("currentPage", page);
+        result.put("totalItems", (long) matches.size());
+        result.put("totalPages", size == 0 ? 1 : (int) Math.ceil((double) matches.size() / size));
+
+        return result;
+    }
+
+    // Books by authors whose name resembles the given one, best match first
+    public List<Book> getBooksByAuthorFuzzy(String author) {
+        return bookFuzzyIndex.search(author, true, null, null);
+    }
+
+    // Get distinct genres (served from the in-memory catalog)
     public List<String> getAllGenres() {
-        return bookRepository.findDistinctGenres();
+        return bookCatalog.snapshot().genres();
+    }
+
+    // Strong ETag for a catalog book: a digest of every serialized field, computed in memory
+    public String getBookETag(Book book) {
+        return "b" + book.getBookId() + "-" + DigestUtils.md5DigestAsHex(book.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Strong ETag for the genre list
+    public String getGenresETag(List<String> genres) {
+        return "g-" + DigestUtils.md5DigestAsHex(String.join("\n", genres).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Build the LIKE/status/genre specification shared by the database search modes
+    private Specification<Book> buildSearchSpecification(String query, String bookStatus, String genre) {
+        return searchSpecification(parseQueryFilter(query), parseStatusFilter(bookStatus), parseGenreFilter(genre));
+    }
+
+    // Title/author substring (already lowercased), status and genre; null means no filter
+    private Specification<Book> searchSpecification(String term, Book.BookStatus status, String genre) {
+        Specification<Book> spec = Specification.where(null);
+
+        if (term != null) {
+            String searchTerm = "%" + term + "%";
+            spec = spec.and((root, criteriaQuery, criteriaBuilder)
+                    -> criteriaBuilder.or(
+                            criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), searchTerm),
+                            criteriaBuilder.like(criteriaBuilder.lower(root.get("author")), searchTerm)
+                    )
+            );
+        }
+
+        if (status != null) {
+            spec = spec.and((root, criteriaQuery, criteriaBuilder)
+                    -> criteriaBuilder.equal(root.get("bookStatus"), status)
+            );
+        }
+
+        if (genre != null) {
+            spec = spec.and((root, criteriaQuery, criteriaBuilder)
+                    -> criteriaBuilder.equal(root.get("genre"), genre)
+            );
+        }
+
+        return spec;
+    }
+
+    // Search term from a request parameter, lowercased for the LIKE; blank means no filter
+    private String parseQueryFilter(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return null;
+        }
+        return query.toLowerCase();
+    }
+
+    // Status filter from a request parameter; "all" or invalid values mean no filter
+    private Book.BookStatus parseStatusFilter(String bookStatus) {
+        if (bookStatus == null || bookStatus.isEmpty() || bookStatus.equalsIgnoreCase("all")) {
+            return null;
+        }
+        try {
+            return Book.BookStatus.valueOf(bookStatus);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Genre filter from a request parameter; "all" means no filter
+    private String parseGenreFilter(String genre) {
+        if (genre == null || genre.isEmpty() || genre.equalsIgnoreCase("all")) {
+            return null;
+        }
+        return genre;
+    }
+
+    // Per-genre and per-status counts (maintained in memory)
+    public Map<String, Object> getFacets() {
+        return bookFacets.getFacets();
+    }
+
+    // Typeahead suggestions for titles and authors
+    public List<BookSuggestIndex.Suggestion> suggest(String prefix, int limit) {
+        return bookSuggestIndex.suggest(prefix, limit);
+    }
+
+    // Catalog cache metrics
+    public Map<String, Object> getCatalogStats() {
+        return bookCatalog.getStats();
+    }
+
+    public Map<String, Object> getInventoryLedgerStats() {
+        return inventoryLedger.getStats();
     }
 }
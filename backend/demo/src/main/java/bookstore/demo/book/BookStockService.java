@@ -0,0 +1,173 @@
+package bookstore.demo.book;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Bulk stock sync for the warehouse feed. Existence is checked with one IN query per chunk and the
+// updates go out as JDBC batches that recompute BookStatus in the same statement, so a 10k-row
+// sync costs a handful of round trips instead of a findById/save pair per book.
+@Service
+public class BookStockService {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    // BookStatus is assigned before Stock: MySQL evaluates SET left to right, so the CASE still sees the old row.
+    // Same rule as BookService.updateBookStock: empty -> out_of_stock, restocked -> available, otherwise unchanged.
+    private static final String SET_STOCK_SQL = "UPDATE Book SET "
+            + "BookStatus = CASE WHEN ? = 0 THEN 'out_of_stock' "
+            + "WHEN BookStatus = 'out_of_stock' THEN 'available' ELSE BookStatus END, "
+            + "Stock = ? WHERE BookID = ?";
+
+    private static final String ADD_STOCK_SQL = "UPDATE Book SET "
+            + "BookStatus = CASE WHEN Stock + ? = 0 THEN 'out_of_stock' "
+            + "WHEN BookStatus = 'out_of_stock' THEN 'available' ELSE BookStatus END, "
+            + "Stock = Stock + ? WHERE BookID = ? AND Stock + ? >= 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryLedger inventoryLedger;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BookStockService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+            TransactionTemplate transactionTemplate, InventoryLedger inventoryLedger,
+            ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.inventoryLedger = inventoryLedger;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Apply a batch of stock levels/deltas; reports updated, missing and rejected (would go negative) ids
+    public Map<String, Object> adjustStock(List<StockAdjustment> adjustments) {
+        Map<Integer, StockAdjustment> merged = merge(adjustments);
+
+        List<Integer> updated = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        List<Integer> rejected = new ArrayList<>();
+
+        List<Integer> ids = new ArrayList<>(merged.keySet());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            List<Integer> chunkUpdated = transactionTemplate.execute(status -> {
+                Set<Integer> existing = findExisting(chunk);
+                List<StockAdjustment> absolute = new ArrayList<>();
+                List<StockAdjustment> relative = new ArrayList<>();
+                for (Integer id : chunk) {
+                    StockAdjustment adjustment = merged.get(id);
+                    if (!existing.contains(id)) {
+                        missing.add(id);
+                    } else if (adjustment.stock() != null) {
+                        absolute.add(adjustment);
+                    } else {
+                        relative.add(adjustment);
+                    }
+                }
+
+                List<Integer> applied = new ArrayList<>();
+                int[][] absoluteCounts = jdbcTemplate.batchUpdate(SET_STOCK_SQL, absolute, CHUNK_SIZE, (ps, a) -> {
+                    ps.setInt(1, a.stock());
+                    ps.setInt(2, a.stock());
+                    ps.setInt(3, a.bookId());
+                });
+                collect(absolute, absoluteCounts, applied, rejected);
+
+                // Absolute levels replace units the ledger admitted but has not written yet
+                if (inventoryLedger.isEnabled()) {
+                    Set<Integer> written = new HashSet<>(applied);
+                    absolute.stream()
+                            .filter(a -> written.contains(a.bookId()))
+                            .forEach(a -> inventoryLedger.overwrite(a.bookId(), a.stock()));
+                }
+
+                int[][] relativeCounts = jdbcTemplate.batchUpdate(ADD_STOCK_SQL, relative, CHUNK_SIZE, (ps, a) -> {
+                    ps.setInt(1, a.delta());
+                    ps.setInt(2, a.delta());
+                    ps.setInt(3, a.bookId());
+                    ps.setInt(4, a.delta());
+                });
+                collect(relative, relativeCounts, applied, rejected);
+                return applied;
+            });
+            updated.addAll(chunkUpdated);
+
+            // The catalog re-reads the committed rows with one IN query instead of an event per book
+            if (!chunkUpdated.isEmpty()) {
+                eventPublisher.publishEvent(BookChangeEvent.changed(chunkUpdated));
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("requested", merged.size());
+        response.put("updated", updated.size());
+        response.put("missingIds", missing);
+        response.put("rejectedIds", rejected);
+        return response;
+    }
+
+    // Validate and collapse repeated ids: an absolute level resets the book, later deltas add to it
+    private static Map<Integer, StockAdjustment> merge(List<StockAdjustment> adjustments) {
+        if (adjustments == null || adjustments.isEmpty()) {
+            throw new IllegalArgumentException("No stock adjustments given");
+        }
+
+        Map<Integer, StockAdjustment> merged = new LinkedHashMap<>();
+        for (StockAdjustment adjustment : adjustments) {
+            if (adjustment == null || adjustment.bookId() == null) {
+                throw new IllegalArgumentException("Every adjustment needs a bookId");
+            }
+            if ((adjustment.stock() == null) == (adjustment.delta() == null)) {
+                throw new IllegalArgumentException("Give either stock or delta for book " + adjustment.bookId());
+            }
+            if (adjustment.stock() != null && adjustment.stock() < 0) {
+                throw new IllegalArgumentException("Stock cannot be negative for book " + adjustment.bookId());
+            }
+
+            merged.merge(adjustment.bookId(), adjustment, (previous, next) -> {
+                if (next.stock() != null) {
+                    return next;
+                }
+                if (previous.stock() == null) {
+                    return new StockAdjustment(previous.bookId(), null, previous.delta() + next.delta());
+                }
+                if (previous.stock() + next.delta() < 0) {
+                    throw new IllegalArgumentException("Stock cannot be negative for book " + previous.bookId());
+                }
+                return new StockAdjustment(previous.bookId(), previous.stock() + next.delta(), null);
+            });
+        }
+        return merged;
+    }
+
+    private Set<Integer> findExisting(List<Integer> ids) {
+        return new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT BookID FROM Book WHERE BookID IN (:ids)", Map.of("ids", ids), Integer.class));
+    }
+
+    private static void collect(List<StockAdjustment> batch, int[][] counts,
+            List<Integer> applied, List<Integer> rejected) {
+        int index = 0;
+        for (int[] group : counts) {
+            for (int count : group) {
+                Integer id = batch.get(index++).bookId();
+                // 0 rows means the guard on a negative result kicked in (the id is known to exist)
+                if (count == 0) {
+                    rejected.add(id);
+                } else {
+                    applied.add(id);
+                }
+            }
+        }
+    }
+}
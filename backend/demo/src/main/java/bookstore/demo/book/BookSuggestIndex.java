@@ -0,0 +1,406 @@
+package bookstore.demo.book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Typeahead over normalized titles and authors.
+// A prefix trie where every node caches its best suggestions by popularity (units sold),
+// so a lookup is a walk of at most MAX_DEPTH nodes. Follows the catalog and sales events incrementally.
+@Component
+public class BookSuggestIndex implements BookCatalog.Listener {
+
+    // Keys are truncated to this depth to bound memory; longer prefixes are filtered from the deepest node
+    private static final int MAX_DEPTH = 32;
+    // Suggestions cached per node
+    private static final int TOP_K = 10;
+    // Title words (after the first) that also start a key, so "rings" finds "The Lord of the Rings"
+    private static final int MAX_WORD_KEYS = 4;
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong(Suggestion::score).reversed()
+            .thenComparing(Suggestion::text, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Suggestion::type);
+
+    private final BookCatalog bookCatalog;
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root = new Node();
+    private final Map<Integer, Suggestion> titles = new HashMap<>();
+    private final Map<Integer, String> bookAuthors = new HashMap<>();
+    private final Map<String, Suggestion> authors = new HashMap<>();
+    private final Map<String, Set<Integer>> authorBooks = new HashMap<>();
+    private final Map<Integer, Long> popularity = new HashMap<>();
+
+    public BookSuggestIndex(BookCatalog bookCatalog, BookRepository bookRepository) {
+        this.bookCatalog = bookCatalog;
+        this.bookRepository = bookRepository;
+        bookCatalog.addListener(this);
+    }
+
+    // Runs under the catalog lock, so it must not touch the database. Popularity is not rebuilt here:
+    // it is loaded once on startup (loadPopularity) and then kept current by sales events.
+    @Override
+    public void onReload(BookCatalog.Snapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            bookAuthors.clear();
+            authors.clear();
+            authorBooks.clear();
+
+            for (Book book : snapshot.books()) {
+                titles.put(book.getBookId(), titleSuggestion(book));
+
+                String authorKey = BookText.normalize(book.getAuthor());
+                if (!authorKey.isEmpty()) {
+                    bookAuthors.put(book.getBookId(), authorKey);
+                    authorBooks.computeIfAbsent(authorKey, key -> new HashSet<>()).add(book.getBookId());
+                    authors.putIfAbsent(authorKey, new Suggestion("author", book.getAuthor(), null, 0));
+                }
+            }
+            rebuildTrie();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Units sold per book, aggregated by the database with no lock held; only the swap takes the write lock
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPopularity() {
+        Map<Integer, Long> sold = new HashMap<>();
+        for (Object[] row : bookRepository.sumQuantitySoldByBook()) {
+            sold.put((Integer) row[0], ((Number) row[1]).longValue());
+        }
+
+        lock.writeLock().lock();
+        try {
+            popularity.clear();
+            popularity.putAll(sold);
+            rebuildTrie();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onChange(Book previous, Book current) {
+        lock.writeLock().lock();
+        try {
+            if (previous != null) {
+                removeBook(previous.getBookId());
+            }
+            if (current != null) {
+                addBook(current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Re-rank after orders are placed or canceled
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSales(BookSalesEvent event) {
+        lock.writeLock().lock();
+        try {
+            Set<String> touchedAuthors = new HashSet<>();
+            event.quantities().forEach((bookId, quantity) -> {
+                popularity.merge(bookId, (long) quantity, Long::sum);
+
+                Suggestion title = titles.get(bookId);
+                if (title != null) {
+                    Suggestion rescored = withScore(title, popularity.getOrDefault(bookId, 0L));
+                    replace(title, rescored, true);
+                    titles.put(bookId, rescored);
+                }
+                String authorKey = bookAuthors.get(bookId);
+                if (authorKey != null) {
+                    touchedAuthors.add(authorKey);
+                }
+            });
+            touchedAuthors.forEach(this::rescoreAuthor);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Best titles/authors starting with the prefix (or with a title word starting with it)
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = BookText.normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        bookCatalog.snapshot();
+
+        List<Suggestion> top;
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            String key = truncate(normalized);
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            top = node == null ? List.of() : node.top;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (normalized.length() > MAX_DEPTH) {
+            top = top.stream()
+                    .filter(suggestion -> BookText.normalize(suggestion.text()).contains(normalized))
+                    .toList();
+        }
+        return top.size() > limit ? top.subList(0, limit) : top;
+    }
+
+    private void addBook(Book book) {
+        Suggestion title = titleSuggestion(book);
+        titles.put(book.getBookId(), title);
+        keys(title.text(), true).forEach(key -> insert(key, title, true));
+
+        String authorKey = BookText.normalize(book.getAuthor());
+        if (!authorKey.isEmpty()) {
+            bookAuthors.put(book.getBookId(), authorKey);
+            authorBooks.computeIfAbsent(authorKey, key -> new HashSet<>()).add(book.getBookId());
+            if (!authors.containsKey(authorKey)) {
+                Suggestion author = new Suggestion("author", book.getAuthor(), null, 0);
+                authors.put(authorKey, author);
+                keys(author.text(), false).forEach(key -> insert(key, author, true));
+            }
+            rescoreAuthor(authorKey);
+        }
+    }
+
+    private void removeBook(Integer bookId) {
+        Suggestion title = titles.remove(bookId);
+        if (title != null) {
+            keys(title.text(), true).forEach(key -> remove(key, title));
+        }
+
+        String authorKey = bookAuthors.remove(bookId);
+        if (authorKey != null) {
+            Set<Integer> books = authorBooks.get(authorKey);
+            books.remove(bookId);
+            if (books.isEmpty()) {
+                authorBooks.remove(authorKey);
+                Suggestion author = authors.remove(authorKey);
+                keys(author.text(), false).forEach(key -> remove(key, author));
+            } else {
+                rescoreAuthor(authorKey);
+            }
+        }
+    }
+
+    // Re-score every title and author from popularity and index them into a fresh trie
+    private void rebuildTrie() {
+        root = new Node();
+        titles.replaceAll((bookId, title) -> withScore(title, popularity.getOrDefault(bookId, 0L)));
+        titles.values().forEach(title -> keys(title.text(), true).forEach(key -> insert(key, title, false)));
+        authors.replaceAll((authorKey, author) -> withScore(author, authorScore(authorKey)));
+        authors.values().forEach(author -> keys(author.text(), false).forEach(key -> insert(key, author, false)));
+        computeTops(root);
+    }
+
+    private void rescoreAuthor(String authorKey) {
+        Suggestion author = authors.get(authorKey);
+        if (author == null) {
+            return;
+        }
+        Suggestion rescored = withScore(author, authorScore(authorKey));
+        if (rescored.score() != author.score()) {
+            replace(author, rescored, false);
+            authors.put(authorKey, rescored);
+        }
+    }
+
+    private void replace(Suggestion old, Suggestion updated, boolean title) {
+        keys(old.text(), title).forEach(key -> remove(key, old));
+        keys(updated.text(), title).forEach(key -> insert(key, updated, true));
+    }
+
+    private long authorScore(String authorKey) {
+        long score = 0;
+        for (Integer bookId : authorBooks.getOrDefault(authorKey, Set.of())) {
+            score += popularity.getOrDefault(bookId, 0L);
+        }
+        return score;
+    }
+
+    private Suggestion titleSuggestion(Book book) {
+        return new Suggestion("title", book.getTitle(), book.getBookId(),
+                popularity.getOrDefault(book.getBookId(), 0L));
+    }
+
+    private static Suggestion withScore(Suggestion suggestion, long score) {
+        return new Suggestion(suggestion.type(), suggestion.text(), suggestion.bookId(), score);
+    }
+
+    // Trie keys for a text: the whole normalized text, plus (for titles) the text from each of the first words
+    private static Set<String> keys(String text, boolean wordStarts) {
+        String normalized = BookText.normalize(text);
+        Set<String> keys = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(truncate(normalized));
+
+        if (wordStarts) {
+            int words = 0;
+            for (int i = normalized.indexOf(' '); i >= 0 && words < MAX_WORD_KEYS; i = normalized.indexOf(' ', i + 1)) {
+                keys.add(truncate(normalized.substring(i + 1)));
+                words++;
+            }
+        }
+        return keys;
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_DEPTH ? key.substring(0, MAX_DEPTH) : key;
+    }
+
+    private void insert(String key, Suggestion suggestion, boolean updateTops) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrAddChild(key.charAt(i));
+            path[i + 1] = node;
+        }
+        node.addOwn(suggestion);
+
+        if (updateTops) {
+            for (int i = path.length - 1; i >= 0; i--) {
+                path[i].recomputeTop();
+            }
+        }
+    }
+
+    private void remove(String key, Suggestion suggestion) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.child(key.charAt(i));
+            if (node == null) {
+                return;
+            }
+            path[i + 1] = node;
+        }
+        node.removeOwn(suggestion);
+
+        for (int i = path.length - 1; i >= 0; i--) {
+            if (i > 0 && path[i].isEmpty()) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+            } else {
+                path[i].recomputeTop();
+            }
+        }
+    }
+
+    private static void computeTops(Node node) {
+        for (Node child : node.children) {
+            computeTops(child);
+        }
+        node.recomputeTop();
+    }
+
+    public record Suggestion(String type, String text, Integer bookId, long score) {
+    }
+
+    // Trie node with sorted child labels (compact arrays instead of a map per node)
+    private static final class Node {
+
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private List<Suggestion> own = List.of();
+        private List<Suggestion> top = List.of();
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrAddChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            Node child = new Node();
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = child;
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels.length == 0 ? NO_LABELS : newLabels;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+
+        void addOwn(Suggestion suggestion) {
+            List<Suggestion> updated = new ArrayList<>(own);
+            updated.add(suggestion);
+            own = updated;
+        }
+
+        void removeOwn(Suggestion suggestion) {
+            List<Suggestion> updated = new ArrayList<>(own);
+            updated.remove(suggestion);
+            own = updated.isEmpty() ? List.of() : updated;
+        }
+
+        boolean isEmpty() {
+            return own.isEmpty() && children.length == 0;
+        }
+
+        // Best TOP_K among this node's own suggestions and its children's cached tops
+        void recomputeTop() {
+            List<Suggestion> candidates = new ArrayList<>(own);
+            for (Node child : children) {
+                candidates.addAll(child.top);
+            }
+            top = candidates.stream()
+                    .distinct()
+                    .sorted(RANKING)
+                    .limit(TOP_K)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package bookstore.demo.book;
+
+import java.math.BigDecimal;
+
+// Lightweight listing view of a book (no description or timestamps), used by view=summary
+public record BookSummary(
+        Integer bookId,
+        String title,
+        String author,
+        BigDecimal price,
+        String cover,
+        Book.BookStatus bookStatus) {
+
+    public static BookSummary from(Book book) {
+        return new BookSummary(
+                book.getBookId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getPrice(),
+                book.getCover(),
+                book.getBookStatus());
+    }
+}
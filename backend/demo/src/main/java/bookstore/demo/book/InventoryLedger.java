@@ -0,0 +1,264 @@
+package bookstore.demo.book;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Optional in-process stock ledger for launch traffic (bookstore.inventory.ledger.enabled).
+// Reservations are admitted against per-book counters guarded by lock stripes instead of the Book row lock;
+// the accumulated deltas are flushed to the Book table in one batch per interval and the counters are
+// re-seeded from the table afterwards, which also picks up stock changes made outside the ledger.
+// Trade-off: Book.Stock lags by up to one flush interval, and unflushed deltas are lost if the process dies
+// without a clean shutdown. Only enable it with a single application instance.
+@Component
+public class InventoryLedger {
+
+    private static final int STRIPES = 64;
+
+    // Status first (MySQL evaluates SET left to right); a delta can only be clamped if stock was lowered externally
+    private static final String APPLY_SQL = "UPDATE Book SET "
+            + "BookStatus = CASE WHEN Stock + ? <= 0 THEN 'out_of_stock' "
+            + "WHEN BookStatus = 'out_of_stock' THEN 'available' ELSE BookStatus END, "
+            + "Stock = GREATEST(Stock + ?, 0) WHERE BookID = ?";
+
+    private final boolean enabled;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Object[] stripes = new Object[STRIPES];
+    private final Map<Integer, Account> accounts = new ConcurrentHashMap<>();
+
+    private final AtomicLong reservations = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+
+    public InventoryLedger(@Value("${bookstore.inventory.ledger.enabled:false}") boolean enabled,
+            JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+            TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher) {
+        this.enabled = enabled;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Admit a reservation in memory; false if the book does not exist or has too little stock left.
+    // Inside a transaction the reservation is handed back automatically if that transaction rolls back.
+    public boolean reserve(Integer bookId, int quantity) {
+        Account account = account(bookId);
+        if (account == null) {
+            return false;
+        }
+
+        synchronized (stripe(bookId)) {
+            if (account.available < quantity) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            account.available -= quantity;
+            account.pending -= quantity;
+        }
+        reservations.incrementAndGet();
+        onRollback(() -> adjust(bookId, account, quantity));
+        return true;
+    }
+
+    // Return units to the ledger (cancellations, removed order items); undone if the transaction rolls back
+    public void release(Integer bookId, int quantity) {
+        Account account = account(bookId);
+        if (account == null) {
+            return;
+        }
+
+        adjust(bookId, account, quantity);
+        onRollback(() -> adjust(bookId, account, -quantity));
+    }
+
+    // An absolute stock level was written to the table (restock, warehouse sync): drop what was admitted
+    // but not flushed, or the next flush would apply it on top of the new level. Call it after the Book row
+    // is updated in the caller's transaction, so a flush of this book queues behind that transaction's
+    // row lock. Restored if the transaction rolls back.
+    public void overwrite(Integer bookId, int stock) {
+        Account account = accounts.get(bookId);
+        if (account == null) {
+            return;
+        }
+
+        long availableBefore;
+        long pendingBefore;
+        synchronized (stripe(bookId)) {
+            availableBefore = account.available;
+            pendingBefore = account.pending;
+            account.available = stock;
+            account.pending = 0;
+        }
+        onRollback(() -> {
+            synchronized (stripe(bookId)) {
+                account.available += availableBefore - stock;
+                account.pending += pendingBefore;
+            }
+        });
+    }
+
+    // Write the accumulated deltas to the Book table in one batch, then re-seed the counters from it
+    @Scheduled(fixedDelayString = "${bookstore.inventory.ledger.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (!enabled || accounts.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Long> deltas = new HashMap<>();
+        accounts.forEach((bookId, account) -> {
+            synchronized (stripe(bookId)) {
+                if (account.pending != 0) {
+                    deltas.put(bookId, account.pending);
+                    account.pending = 0;
+                }
+            }
+        });
+
+        if (!deltas.isEmpty()) {
+            List<Map.Entry<Integer, Long>> batch = new ArrayList<>(deltas.entrySet());
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(APPLY_SQL, batch, batch.size(), (ps, delta) -> {
+                            ps.setLong(1, delta.getValue());
+                            ps.setLong(2, delta.getValue());
+                            ps.setInt(3, delta.getKey());
+                        }));
+            } catch (RuntimeException e) {
+                // Put the deltas back so the next flush retries them
+                deltas.forEach((bookId, delta) -> {
+                    synchronized (stripe(bookId)) {
+                        accounts.get(bookId).pending += delta;
+                    }
+                });
+                throw e;
+            }
+            flushes.incrementAndGet();
+            eventPublisher.publishEvent(BookChangeEvent.changed(deltas.keySet()));
+        }
+
+        reconcile();
+    }
+
+    // Flush what was admitted before the application stops
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Counters for monitoring
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("accounts", accounts.size());
+        stats.put("reservations", reservations.get());
+        stats.put("rejections", rejections.get());
+        stats.put("flushes", flushes.get());
+        return stats;
+    }
+
+    // Available = stock in the table + whatever was admitted since the last drain
+    private void reconcile() {
+        List<Integer> ids = new ArrayList<>(accounts.keySet());
+        Map<Integer, Integer> stock = new HashMap<>();
+        namedJdbcTemplate.query("SELECT BookID, Stock FROM Book WHERE BookID IN (:ids)", Map.of("ids", ids),
+                rs -> {
+                    stock.put(rs.getInt("BookID"), rs.getInt("Stock"));
+                });
+
+        for (Integer bookId : ids) {
+            synchronized (stripe(bookId)) {
+                Integer current = stock.get(bookId);
+                if (current == null) {
+                    accounts.remove(bookId);
+                } else {
+                    accounts.get(bookId).available = current + accounts.get(bookId).pending;
+                }
+            }
+        }
+    }
+
+    // Account for a book, seeded from its current stock on first use
+    private Account account(Integer bookId) {
+        Account account = accounts.get(bookId);
+        if (account != null) {
+            return account;
+        }
+
+        synchronized (stripe(bookId)) {
+            account = accounts.get(bookId);
+            if (account == null) {
+                List<Integer> stock = jdbcTemplate.queryForList(
+                        "SELECT Stock FROM Book WHERE BookID = ?", Integer.class, bookId);
+                if (stock.isEmpty()) {
+                    return null;
+                }
+                account = new Account(stock.get(0));
+                accounts.put(bookId, account);
+            }
+            return account;
+        }
+    }
+
+    private void adjust(Integer bookId, Account account, int delta) {
+        synchronized (stripe(bookId)) {
+            account.available += delta;
+            account.pending += delta;
+        }
+    }
+
+    private Object stripe(Integer bookId) {
+        return stripes[Math.floorMod(bookId.hashCode(), STRIPES)];
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    // Guarded by the book's stripe
+    private static final class Account {
+
+        private long available;
+        private long pending;
+
+        private Account(long available) {
+            this.available = available;
+        }
+    }
+}
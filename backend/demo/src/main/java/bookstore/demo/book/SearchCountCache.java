@@ -0,0 +1,82 @@
+package bookstore.demo.book;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Approximate search totals per (query, status, genre), refreshed in the background.
+// Lets slice/infinite-scroll clients show a total without paying a COUNT(*) per request.
+// Keys are the parsed filter values the counter itself uses, so two searches share an entry only
+// when they count exactly the same rows.
+@Component
+public class SearchCountCache {
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long refreshIntervalMs;
+
+    public SearchCountCache(
+            @Value("${bookstore.search.count-cache-size:1000}") int maxEntries,
+            @Value("${bookstore.search.count-refresh-interval-ms:60000}") long refreshIntervalMs) {
+        this.maxEntries = maxEntries;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    // Cached count for the search, computed synchronously only the first time it is seen; null = no filter
+    public long getCount(String searchTerm, Book.BookStatus bookStatus, String genre, LongSupplier counter) {
+        Key key = new Key(searchTerm, bookStatus, genre);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            evictIfFull();
+            entry = entries.computeIfAbsent(key, k -> new Entry(counter, counter.getAsLong()));
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        return entry.count;
+    }
+
+    // Recount searches that are still being used, drop the ones that are not
+    @Scheduled(fixedDelayString = "${bookstore.search.count-refresh-interval-ms:60000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> now - e.getValue().lastAccess > refreshIntervalMs * 10);
+
+        for (Entry entry : entries.values()) {
+            if (now - entry.computedAt >= refreshIntervalMs) {
+                entry.count = entry.counter.getAsLong();
+                entry.computedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void evictIfFull() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        entries.entrySet().stream()
+                .min(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                .ifPresent(oldest -> entries.remove(oldest.getKey()));
+    }
+
+    private record Key(String searchTerm, Book.BookStatus bookStatus, String genre) {
+    }
+
+    private static final class Entry {
+
+        private final LongSupplier counter;
+        private volatile long count;
+        private volatile long computedAt;
+        private volatile long lastAccess;
+
+        private Entry(LongSupplier counter, long count) {
+            this.counter = counter;
+            this.count = count;
+            this.computedAt = System.currentTimeMillis();
+            this.lastAccess = this.computedAt;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package bookstore.demo.book;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+// Immutable list of books sorted by id, updated copy-on-write. Lookups by id are binary searches, and
+// adding, replacing or removing one book is a single array copy: no re-sorting and no re-hashing.
+final class SortedBookList extends AbstractList<Book> implements RandomAccess {
+
+    static final SortedBookList EMPTY = new SortedBookList(new Book[0]);
+
+    private final Book[] books;
+
+    private SortedBookList(Book[] books) {
+        this.books = books;
+    }
+
+    static SortedBookList of(Collection<Book> source) {
+        Book[] array = source.toArray(new Book[0]);
+        Arrays.sort(array, Comparator.comparing(Book::getBookId));
+        return new SortedBookList(array);
+    }
+
+    // The list itself when it already is one (snapshots only ever hold these)
+    static SortedBookList from(List<Book> list) {
+        return list instanceof SortedBookList sorted ? sorted : of(list);
+    }
+
+    @Override
+    public Book get(int index) {
+        return books[index];
+    }
+
+    @Override
+    public int size() {
+        return books.length;
+    }
+
+    Book find(Integer id) {
+        int index = indexOf(id);
+        return index >= 0 ? books[index] : null;
+    }
+
+    // Copy with the book added, or replacing the one with the same id
+    SortedBookList with(Book book) {
+        int index = indexOf(book.getBookId());
+        if (index >= 0) {
+            Book[] copy = books.clone();
+            copy[index] = book;
+            return new SortedBookList(copy);
+        }
+
+        int insert = -index - 1;
+        Book[] copy = new Book[books.length + 1];
+        System.arraycopy(books, 0, copy, 0, insert);
+        copy[insert] = book;
+        System.arraycopy(books, insert, copy, insert + 1, books.length - insert);
+        return new SortedBookList(copy);
+    }
+
+    // Copy without the book with this id (the list itself if there is none)
+    SortedBookList without(Integer id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return this;
+        }
+
+        Book[] copy = new Book[books.length - 1];
+        System.arraycopy(books, 0, copy, 0, index);
+        System.arraycopy(books, index + 1, copy, index, books.length - index - 1);
+        return new SortedBookList(copy);
+    }
+
+    // Read-only id -> book view over the same array
+    Map<Integer, Book> asMap() {
+        return new IdMap();
+    }
+
+    // Position of the id, or -(insertion point + 1) like Arrays.binarySearch
+    private int indexOf(Integer id) {
+        int low = 0;
+        int high = books.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = books[mid].getBookId().compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private final class IdMap extends AbstractMap<Integer, Book> {
+
+        @Override
+        public Book get(Object key) {
+            return key instanceof Integer id ? find(id) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return books.length;
+        }
+
+        @Override
+        public Set<Entry<Integer, Book>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, Book>> iterator() {
+                    return SortedBookList.this.stream()
+                            .<Entry<Integer, Book>>map(book -> new SimpleImmutableEntry<>(book.getBookId(), book))
+                            .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return books.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package bookstore.demo.book;
+
+// One line of a bulk stock sync: either an absolute stock level or a relative delta
+public record StockAdjustment(Integer bookId, Integer stock, Integer delta) {
+}
@@ -0,0 +1,76 @@
+package bookstore.demo.cart;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Bounded LRU of customerId -> active cart id, so resolving a customer's cart on every page load is a map read.
+// Misses are single-flight per customer: concurrent first visits wait for one lookup (and at most one new cart)
+// instead of each running their own.
+@Component
+public class ActiveCartCache {
+
+    private final Map<Integer, Integer> cartIds;
+    private final Map<Integer, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+
+    public ActiveCartCache(@Value("${bookstore.carts.active-cache-size:10000}") int maxEntries) {
+        this.cartIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Cached cart id, or the one found/created by the loader (run once per customer however many callers wait)
+    public Integer resolve(Integer customerId, Function<Integer, Integer> loader) {
+        synchronized (cartIds) {
+            Integer cartId = cartIds.get(customerId);
+            if (cartId != null) {
+                return cartId;
+            }
+        }
+
+        CompletableFuture<Integer> mine = new CompletableFuture<>();
+        CompletableFuture<Integer> running = inFlight.putIfAbsent(customerId, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Integer cartId = loader.apply(customerId);
+            put(customerId, cartId);
+            mine.complete(cartId);
+            return cartId;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(customerId, mine);
+        }
+    }
+
+    // A new cart became the customer's active one
+    public void put(Integer customerId, Integer cartId) {
+        synchronized (cartIds) {
+            cartIds.put(customerId, cartId);
+        }
+    }
+
+    // Forget the customer's cart (checked out, or found to be gone)
+    public void evict(Integer customerId) {
+        synchronized (cartIds) {
+            cartIds.remove(customerId);
+        }
+    }
+}
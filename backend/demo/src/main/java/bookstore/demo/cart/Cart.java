@@ -1,5 +1,6 @@
 package bookstore.demo.cart;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import bookstore.demo.customer.Customer;
@@ -27,6 +28,13 @@ public class Cart {
     @JoinColumn(name = "CustomerID", nullable = false)
     private Customer customer;
 
+    // Running totals over the cart's items, maintained in SQL by CartRepository (never written back from here)
+    @Column(name = "ItemCount", nullable = false, updatable = false)
+    private Integer itemCount;
+
+    @Column(name = "Subtotal", nullable = false, updatable = false)
+    private BigDecimal subtotal;
+
     @Column(name = "CreatedAt", nullable = false)
     private LocalDateTime createdAt;
 
@@ -56,6 +64,22 @@ public class Cart {
         this.customer = customer;
     }
 
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(BigDecimal subtotal) {
+        this.subtotal = subtotal;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -77,6 +101,8 @@ public class Cart {
         return "Cart{"
                 + "cartId=" + cartId
                 + ", customer=" + customer.getCustomerId()
+                + ", itemCount=" + itemCount
+                + ", subtotal=" + subtotal
                 + ", createdAt=" + createdAt
                 + ", updatedAt=" + updatedAt
                 + '}';
@@ -84,6 +110,8 @@ public class Cart {
 
     @PrePersist
     protected void onCreate() {
+        itemCount = 0;
+        subtotal = BigDecimal.ZERO;
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
     }
@@ -0,0 +1,10 @@
+package bookstore.demo.cart;
+
+import java.math.BigDecimal;
+
+// Cart totals as stored on the Cart row, for the header badge
+public record CartBadge(
+        Integer cartId,
+        Integer itemCount,
+        BigDecimal subtotal) {
+}
@@ -0,0 +1,207 @@
+package bookstore.demo.cart;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import bookstore.demo.book.Book;
+import bookstore.demo.book.BookRepository;
+
+// Batch add-to-cart for "reorder" and "add whole series". All books are validated with one IN query,
+// the cart's existing lines with another, and the writes go out as two JDBC batches in one transaction,
+// instead of a lookup-and-save round per book.
+@Service
+public class CartBatchService {
+
+    private static final String EXISTING_ITEMS_SQL = "SELECT CartItemID, BookID, Quantity FROM CartItems "
+            + "WHERE CartID = :cartId AND BookID IN (:bookIds)";
+
+    // Same statement as CartItemsRepository.upsertItem: a line added concurrently since the read above is
+    // raised instead (unique CartID, BookID), and nothing is written unless stock covers the result
+    private static final String INSERT_ITEM_SQL = "INSERT INTO CartItems (CartID, BookID, Quantity) "
+            + "SELECT ?, b.BookID, ? FROM Book b "
+            + "LEFT JOIN CartItems ci ON ci.CartID = ? AND ci.BookID = b.BookID "
+            + "WHERE b.BookID = ? AND b.BookStatus = 'available' "
+            + "AND b.Stock >= COALESCE(ci.Quantity, 0) + ? "
+            + "ON DUPLICATE KEY UPDATE Quantity = CartItems.Quantity + ?";
+
+    // Raises the line relative to whatever it holds now, with the same stock guard as
+    // CartItemsRepository.upsertItem; a line the guard rejects is left alone and counts 0 rows
+    private static final String UPDATE_ITEM_SQL = "UPDATE CartItems ci JOIN Book b ON b.BookID = ci.BookID "
+            + "SET ci.Quantity = ci.Quantity + ? "
+            + "WHERE ci.CartItemID = ? AND b.BookStatus = 'available' AND b.Stock >= ci.Quantity + ?";
+
+    private final CartRepository cartRepository;
+    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public CartBatchService(CartRepository cartRepository, BookRepository bookRepository,
+            JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.cartRepository = cartRepository;
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    // Add many books at once. Same rules as CartItemsService.addItemToCart, applied per book: lines that
+    // fail them are reported as rejected and the rest are still added. Repeated books are merged.
+    @Transactional
+    public Map<String, Object> addItemsToCart(Integer cartId, List<CartItemRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("No items given");
+        }
+        if (!cartRepository.existsById(cartId)) {
+            throw new IllegalArgumentException("Cart not found");
+        }
+
+        List<CartItemResult> results = new ArrayList<>();
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemRequest request : requests) {
+            if (request == null || request.bookId() == null || request.quantity() == null) {
+                results.add(CartItemResult.rejected(request != null ? request.bookId() : null,
+                        request != null ? request.quantity() : null, "Book ID and quantity are required"));
+            } else if (request.quantity() <= 0) {
+                results.add(CartItemResult.rejected(request.bookId(), request.quantity(),
+                        "Quantity must be greater than 0"));
+            } else {
+                quantities.merge(request.bookId(), request.quantity(), Integer::sum);
+            }
+        }
+
+        Map<Integer, Book> books = new HashMap<>();
+        Map<Integer, int[]> existing = new HashMap<>();
+        if (!quantities.isEmpty()) {
+            bookRepository.findAllById(quantities.keySet()).forEach(book -> books.put(book.getBookId(), book));
+            namedJdbcTemplate.query(EXISTING_ITEMS_SQL,
+                    Map.of("cartId", cartId, "bookIds", quantities.keySet()),
+                    rs -> {
+                        existing.put(rs.getInt("BookID"), new int[] {rs.getInt("CartItemID"), rs.getInt("Quantity")});
+                    });
+        }
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<PendingLine> insertLines = new ArrayList<>();
+        List<PendingLine> updateLines = new ArrayList<>();
+        int addedItems = 0;
+        BigDecimal addedAmount = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            Integer bookId = line.getKey();
+            int quantity = line.getValue();
+            Book book = books.get(bookId);
+            int[] item = existing.get(bookId);
+            int cartQuantity = quantity + (item != null ? item[1] : 0);
+
+            if (book == null) {
+                results.add(CartItemResult.rejected(bookId, quantity, "Book not found"));
+                continue;
+            }
+            if (book.getBookStatus() != Book.BookStatus.available) {
+                results.add(CartItemResult.rejected(bookId, quantity, "Book is not available"));
+                continue;
+            }
+            if (book.getStock() < cartQuantity) {
+                results.add(CartItemResult.rejected(bookId, quantity, "Not enough stock available"));
+                continue;
+            }
+
+            // Results and totals depend on whether the guarded statements still apply
+            PendingLine pending = new PendingLine(results.size(), bookId, quantity, cartQuantity, book.getPrice());
+            results.add(null);
+            if (item == null) {
+                inserts.add(new Object[] {cartId, quantity, cartId, bookId, quantity, quantity});
+                insertLines.add(pending);
+            } else {
+                updates.add(new Object[] {quantity, item[0], quantity});
+                updateLines.add(pending);
+            }
+        }
+
+        // Affected rows per line, inserts first: 0 when the stock guard rejected it
+        List<PendingLine> written = new ArrayList<>(insertLines);
+        written.addAll(updateLines);
+        int[] counts = IntStream.concat(
+                Arrays.stream(batch(INSERT_ITEM_SQL, inserts)),
+                Arrays.stream(batch(UPDATE_ITEM_SQL, updates))).toArray();
+        resolveUnknownCounts(cartId, written, counts);
+        int added = 0;
+        int updated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            boolean insert = i < insertLines.size();
+            PendingLine line = written.get(i);
+            if (counts[i] <= 0) {
+                // Stock dropped, or concurrent adds already took the line past it
+                results.set(line.slot(), CartItemResult.rejected(line.bookId(), line.quantity(),
+                        "Not enough stock available"));
+                continue;
+            }
+            if (insert) {
+                results.set(line.slot(), CartItemResult.added(line.bookId(), line.quantity()));
+                added++;
+            } else {
+                results.set(line.slot(), CartItemResult.updated(line.bookId(), line.quantity(), line.cartQuantity()));
+                updated++;
+            }
+            addedItems += line.quantity();
+            addedAmount = addedAmount.add(line.price().multiply(BigDecimal.valueOf(line.quantity())));
+        }
+        if (addedItems > 0) {
+            cartRepository.addToTotals(cartId, addedItems, addedAmount);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("cartId", cartId);
+        response.put("added", added);
+        response.put("updated", updated);
+        response.put("rejected", results.size() - added - updated);
+        response.put("items", results);
+        return response;
+    }
+
+    // A rewritten batch may report SUCCESS_NO_INFO instead of a row count. For those lines, re-read the cart
+    // (this transaction already holds their row locks): a line was written when it now holds at least what
+    // it held when first read plus the quantity added
+    private void resolveUnknownCounts(Integer cartId, List<PendingLine> lines, int[] counts) {
+        List<Integer> unknown = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                unknown.add(lines.get(i).bookId());
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Integer> quantities = new HashMap<>();
+        namedJdbcTemplate.query(EXISTING_ITEMS_SQL, Map.of("cartId", cartId, "bookIds", unknown),
+                rs -> {
+                    quantities.put(rs.getInt("BookID"), rs.getInt("Quantity"));
+                });
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                PendingLine line = lines.get(i);
+                counts[i] = quantities.getOrDefault(line.bookId(), 0) >= line.cartQuantity() ? 1 : 0;
+            }
+        }
+    }
+
+    private int[] batch(String sql, List<Object[]> args) {
+        return args.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    // A line to write, and where its result goes; cartQuantity is as of the read above
+    private record PendingLine(int slot, Integer bookId, int quantity, int cartQuantity, BigDecimal price) {
+    }
+}
@@ -2,6 +2,7 @@ package bookstore.demo.cart;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/carts")
@@ -20,10 +22,15 @@ public class CartController {
 
     private final CartService cartService;
     private final CartItemsService cartItemsService;
+    private final CartBatchService cartBatchService;
+    private final CartSweeper cartSweeper;
 
-    public CartController(CartService cartService, CartItemsService cartItemsService) {
+    public CartController(CartService cartService, CartItemsService cartItemsService,
+            CartBatchService cartBatchService, CartSweeper cartSweeper) {
         this.cartService = cartService;
         this.cartItemsService = cartItemsService;
+        this.cartBatchService = cartBatchService;
+        this.cartSweeper = cartSweeper;
     }
 
     // Get cart by ID
@@ -97,6 +104,19 @@ public class CartController {
         }
     }
 
+    // Add many items at once: [{bookId, quantity}, ...]; reports the outcome of every line
+    @PostMapping("/{cartId}/items/batch")
+    public ResponseEntity<?> addItemsToCart(
+            @PathVariable Integer cartId,
+            @RequestBody List<CartItemRequest> items) {
+
+        try {
+            return ResponseEntity.ok(cartBatchService.addItemsToCart(cartId, items));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // Update cart item quantity
     @PutMapping("/{cartId}/items/{itemId}")
     public ResponseEntity<?> updateCartItemQuantity(
@@ -147,9 +167,23 @@ public class CartController {
         return ResponseEntity.noContent().build();
     }
 
+    // Item count and subtotal for the header badge (one primary-key read)
+    @GetMapping("/{cartId}/badge")
+    public ResponseEntity<CartBadge> getCartBadge(@PathVariable Integer cartId) {
+        return cartService.getCartBadge(cartId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     // Get cart summary (with item count and total price)
     @GetMapping("/{cartId}/summary")
-    public ResponseEntity<?> getCartSummary(@PathVariable Integer cartId) {
+    public ResponseEntity<?> getCartSummary(@PathVariable Integer cartId, WebRequest request) {
+        // Decide 304 from the version columns alone; the ETag is read before the body, so it is never newer
+        Optional<String> etag = cartService.getCartSummaryETag(cartId);
+        if (etag.isPresent() && request.checkNotModified(etag.get())) {
+            return null;
+        }
+
         try {
             Map<String, Object> summary = cartService.getCartSummary(cartId);
             return ResponseEntity.ok(summary);
@@ -157,4 +191,10 @@ public class CartController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    // Abandoned-cart sweeper progress and totals
+    @GetMapping("/sweeper/stats")
+    public ResponseEntity<Map<String, Object>> getSweeperStats() {
+        return ResponseEntity.ok(cartSweeper.getStats());
+    }
 }
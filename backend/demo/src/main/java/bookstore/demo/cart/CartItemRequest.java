@@ -0,0 +1,5 @@
+package bookstore.demo.cart;
+
+// One line of a batch add-to-cart request
+public record CartItemRequest(Integer bookId, Integer quantity) {
+}
@@ -0,0 +1,17 @@
+package bookstore.demo.cart;
+
+// Outcome of one line of a batch add-to-cart: added, updated (quantity raised) or rejected with a reason
+public record CartItemResult(Integer bookId, Integer quantity, String status, Integer cartQuantity, String error) {
+
+    static CartItemResult added(Integer bookId, int quantity) {
+        return new CartItemResult(bookId, quantity, "added", quantity, null);
+    }
+
+    static CartItemResult updated(Integer bookId, int quantity, int cartQuantity) {
+        return new CartItemResult(bookId, quantity, "updated", cartQuantity, null);
+    }
+
+    static CartItemResult rejected(Integer bookId, Integer quantity, String error) {
+        return new CartItemResult(bookId, quantity, "rejected", null, error);
+    }
+}
@@ -3,20 +3,48 @@ package bookstore.demo.cart;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-
-import bookstore.demo.book.Book;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface CartItemsRepository extends JpaRepository<CartItems, Integer> {
 
-    // Find all items in a cart
+    // Find all items in a cart, with their books, cart and customer fetched in the same statement
+    @EntityGraph(attributePaths = {"book", "cart", "cart.customer"})
     List<CartItems> findByCartCartId(Integer cartId);
 
-    // Find a specific item in a cart
-    Optional<CartItems> findByCartAndBook(Cart cart, Book book);
+    // Cart lines for the summary, projected straight from CartItems joined to Book
+    @Query("SELECT new bookstore.demo.cart.CartLine(ci.cartItemId, b.bookId, b.title, b.author, b.price, "
+            + "b.cover, b.bookStatus, ci.quantity) "
+            + "FROM CartItems ci JOIN ci.book b WHERE ci.cart.cartId = :cartId ORDER BY ci.cartItemId")
+    List<CartLine> findLinesByCartId(@Param("cartId") Integer cartId);
+
+    // Find a specific item in a cart, with its book, cart and customer
+    @EntityGraph(attributePaths = {"book", "cart", "cart.customer"})
+    Optional<CartItems> findByCartCartIdAndBookBookId(Integer cartId, Integer bookId);
+
+    // Add a book to a cart in one statement: inserts the line or raises its quantity (unique CartID, BookID).
+    // Nothing is written unless the book is available and its stock covers the resulting cart quantity.
+    // Returns 1 when inserted, 2 when an existing line was raised, 0 when rejected.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO CartItems (CartID, BookID, Quantity) "
+            + "SELECT :cartId, b.BookID, :quantity FROM Book b "
+            + "LEFT JOIN CartItems ci ON ci.CartID = :cartId AND ci.BookID = b.BookID "
+            + "WHERE b.BookID = :bookId AND b.BookStatus = 'available' "
+            + "AND b.Stock >= COALESCE(ci.Quantity, 0) + :quantity "
+            + "ON DUPLICATE KEY UPDATE Quantity = CartItems.Quantity + :quantity", nativeQuery = true)
+    int upsertItem(@Param("cartId") Integer cartId, @Param("bookId") Integer bookId,
+            @Param("quantity") int quantity);
 
-    // Delete all items in a cart
-    void deleteByCartCartId(Integer cartId);
+    // Delete all items in a cart in one statement (a derived delete loads and removes them one by one)
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CartItems ci WHERE ci.cart.cartId = :cartId")
+    int deleteByCartCartId(@Param("cartId") Integer cartId);
 }
@@ -1,26 +1,27 @@
 package bookstore.demo.cart;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import bookstore.demo.book.Book;
-import bookstore.demo.book.BookRepository;
+import bookstore.demo.book.BookService;
 
+import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 public class CartItemsService {
 
     private final CartRepository cartRepository;
     private final CartItemsRepository cartItemsRepository;
-    private final BookRepository bookRepository;
+    private final BookService bookService;
 
     // Constructor injection
-    public CartItemsService(CartRepository cartRepository, CartItemsRepository cartItemsRepository, BookRepository bookRepository) {
+    public CartItemsService(CartRepository cartRepository, CartItemsRepository cartItemsRepository, BookService bookService) {
         this.cartRepository = cartRepository;
         this.cartItemsRepository = cartItemsRepository;
-        this.bookRepository = bookRepository;
+        this.bookService = bookService;
     }
 
     // Get all items in a cart
@@ -28,13 +29,11 @@ public class CartItemsService {
         return cartItemsRepository.findByCartCartId(cartId);
     }
 
-    // Add an item to the cart
+    // Add an item to the cart. Availability is pre-checked against the in-memory catalog; the line is then
+    // inserted or its quantity raised by one upsert that re-checks status and stock in the database.
     @Transactional
     public CartItems addItemToCart(Integer cartId, Integer bookId, Integer quantity) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new IllegalArgumentException("Cart not found"));
-
-        Book book = bookRepository.findById(bookId)
+        Book book = bookService.getBookById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found"));
 
         // Check if book is available
@@ -47,25 +46,21 @@ public class CartItemsService {
             throw new IllegalArgumentException("Not enough stock available");
         }
 
-        // Check if item already exists in cart
-        Optional<CartItems> existingItem = cartItemsRepository.findByCartAndBook(cart, book);
-
-        if (existingItem.isPresent()) {
-            // Update quantity if item already exists
-            CartItems item = existingItem.get();
-            int newQuantity = item.getQuantity() + quantity;
-
-            if (book.getStock() < newQuantity) {
-                throw new IllegalArgumentException("Not enough stock available");
-            }
-
-            item.setQuantity(newQuantity);
-            return cartItemsRepository.save(item);
-        } else {
-            // Create new cart item if it doesn't exist
-            CartItems newItem = new CartItems(cart, book, quantity);
-            return cartItemsRepository.save(newItem);
+        int rows;
+        try {
+            rows = cartItemsRepository.upsertItem(cartId, bookId, quantity);
+        } catch (DataIntegrityViolationException e) {
+            // Only the CartID foreign key can fail here
+            throw new IllegalArgumentException("Cart not found");
         }
+        if (rows == 0) {
+            // The book sold out, or the cart already holds as many as are in stock
+            throw new IllegalArgumentException("Not enough stock available");
+        }
+
+        cartRepository.addBookToTotals(cartId, bookId, quantity);
+        return cartItemsRepository.findByCartCartIdAndBookBookId(cartId, bookId)
+                .orElseThrow(() -> new IllegalStateException("Cart item vanished after upsert"));
     }
 
     // Update cart item quantity
@@ -84,6 +79,7 @@ public class CartItemsService {
             throw new IllegalArgumentException("Not enough stock available");
         }
 
+        addToTotals(cartId, item.getBook(), quantity - item.getQuantity());
         item.setQuantity(quantity);
         return cartItemsRepository.save(item);
     }
@@ -100,11 +96,18 @@ public class CartItemsService {
         }
 
         cartItemsRepository.delete(item);
+        addToTotals(cartId, item.getBook(), -item.getQuantity());
     }
 
     // Clear cart (remove all items)
     @Transactional
     public void clearCart(Integer cartId) {
         cartItemsRepository.deleteByCartCartId(cartId);
+        cartRepository.resetTotals(cartId);
+    }
+
+    // Keep the cart's stored item count and subtotal in step with a quantity change of one book
+    private void addToTotals(Integer cartId, Book book, int quantityDelta) {
+        cartRepository.addToTotals(cartId, quantityDelta, book.getPrice().multiply(BigDecimal.valueOf(quantityDelta)));
     }
 }
@@ -0,0 +1,23 @@
+package bookstore.demo.cart;
+
+import java.math.BigDecimal;
+
+import bookstore.demo.book.Book;
+import bookstore.demo.book.BookSummary;
+
+// Cart item as shown in the cart summary: the book's listing fields, quantity and line total
+public record CartLine(
+        Integer cartItemId,
+        BookSummary book,
+        Integer quantity,
+        BigDecimal lineTotal) {
+
+    // Flat form used by the JPQL constructor expression in CartItemsRepository
+    public CartLine(Integer cartItemId, Integer bookId, String title, String author, BigDecimal price,
+            String cover, Book.BookStatus bookStatus, Integer quantity) {
+        this(cartItemId,
+                new BookSummary(bookId, title, author, price, cover, bookStatus),
+                quantity,
+                price.multiply(BigDecimal.valueOf(quantity)));
+    }
+}
@@ -1,9 +1,16 @@
 package bookstore.demo.cart;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import bookstore.demo.customer.Customer;
 
@@ -12,4 +19,58 @@ public interface CartRepository extends JpaRepository<Cart, Integer> {
 
     // Find the most recent cart for a customer
     Optional<Cart> findTopByCustomerOrderByCreatedAtDesc(Customer customer);
+
+    // Apply an item change to the running totals in place; also bumps UpdatedAt, the cart's version
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Cart SET ItemCount = ItemCount + :items, Subtotal = Subtotal + :amount, "
+            + "UpdatedAt = CURRENT_TIMESTAMP(6) WHERE CartID = :cartId", nativeQuery = true)
+    int addToTotals(@Param("cartId") Integer cartId, @Param("items") int items, @Param("amount") BigDecimal amount);
+
+    // Same, for a quantity of one book priced in the database
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Cart SET ItemCount = ItemCount + :quantity, "
+            + "Subtotal = Subtotal + :quantity * (SELECT b.Price FROM Book b WHERE b.BookID = :bookId), "
+            + "UpdatedAt = CURRENT_TIMESTAMP(6) WHERE CartID = :cartId", nativeQuery = true)
+    int addBookToTotals(@Param("cartId") Integer cartId, @Param("bookId") Integer bookId,
+            @Param("quantity") int quantity);
+
+    // The cart was emptied
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Cart SET ItemCount = 0, Subtotal = 0, UpdatedAt = CURRENT_TIMESTAMP(6) "
+            + "WHERE CartID = :cartId", nativeQuery = true)
+    int resetTotals(@Param("cartId") Integer cartId);
+
+    // Recompute the subtotal of every cart holding one of the books, after their prices changed
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Cart c SET c.Subtotal = ("
+            + "SELECT COALESCE(SUM(ci.Quantity * b.Price), 0) FROM CartItems ci JOIN Book b ON b.BookID = ci.BookID "
+            + "WHERE ci.CartID = c.CartID) "
+            + "WHERE c.CartID IN (SELECT ci.CartID FROM CartItems ci WHERE ci.BookID IN (:bookIds))", nativeQuery = true)
+    int repriceCartsContaining(@Param("bookIds") Collection<Integer> bookIds);
+
+    // Take a book's lines off the totals of the carts holding it, before the book (and so its cart items) is deleted
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Cart c JOIN ("
+            + "SELECT ci.CartID, SUM(ci.Quantity) AS items, SUM(ci.Quantity * b.Price) AS subtotal "
+            + "FROM CartItems ci JOIN Book b ON b.BookID = ci.BookID WHERE ci.BookID = :bookId GROUP BY ci.CartID) t "
+            + "ON t.CartID = c.CartID "
+            + "SET c.ItemCount = c.ItemCount - t.items, c.Subtotal = c.Subtotal - t.subtotal, "
+            + "c.UpdatedAt = CURRENT_TIMESTAMP(6)", nativeQuery = true)
+    int removeBookFromTotals(@Param("bookId") Integer bookId);
+
+    // Item count and subtotal for the header badge: a single primary-key read
+    @Query("SELECT new bookstore.demo.cart.CartBadge(c.cartId, c.itemCount, c.subtotal) FROM Cart c "
+            + "WHERE c.cartId = :cartId")
+    Optional<CartBadge> findBadge(@Param("cartId") Integer cartId);
+
+    // Cart version plus the newest change among its books, without loading any entity (for ETags)
+    @Query("SELECT c.updatedAt, MAX(b.updatedAt), COUNT(ci) FROM Cart c "
+            + "LEFT JOIN CartItems ci ON ci.cart = c LEFT JOIN ci.book b "
+            + "WHERE c.cartId = :cartId GROUP BY c.cartId, c.updatedAt")
+    List<Object[]> findSummaryVersion(@Param("cartId") Integer cartId);
 }
@@ -1,11 +1,20 @@
 package bookstore.demo.cart;
 
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import bookstore.demo.book.Book;
+import bookstore.demo.book.BookChangeEvent;
+import bookstore.demo.book.BookDeletingEvent;
 import bookstore.demo.customer.Customer;
 import bookstore.demo.customer.CustomerRepository;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,12 +26,15 @@ public class CartService {
     private final CartRepository cartRepository;
     private final CartItemsRepository cartItemsRepository;
     private final CustomerRepository customerRepository;
+    private final ActiveCartCache activeCartCache;
 
     // Constructor injection
-    public CartService(CartRepository cartRepository, CartItemsRepository cartItemsRepository, CustomerRepository customerRepository) {
+    public CartService(CartRepository cartRepository, CartItemsRepository cartItemsRepository,
+            CustomerRepository customerRepository, ActiveCartCache activeCartCache) {
         this.cartRepository = cartRepository;
         this.cartItemsRepository = cartItemsRepository;
         this.customerRepository = customerRepository;
+        this.activeCartCache = activeCartCache;
     }
 
     // Get cart by ID
@@ -35,17 +47,32 @@ public class CartService {
         return cartRepository.existsById(id);
     }
 
-    // Create a new cart for a customer
+    // Create a new cart for a customer; it becomes the customer's active cart
     public Cart createCart(Integer customerId) {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
 
-        Cart cart = new Cart(customer);
-        return cartRepository.save(cart);
+        Cart cart = cartRepository.save(new Cart(customer));
+        activeCartCache.put(customerId, cart.getCartId());
+        return cart;
     }
 
-    // Get or create a cart for a customer
+    // Get or create a cart for a customer. The active cart id comes from ActiveCartCache; only the
+    // cart row itself is read (and a cached id whose cart was deleted is resolved again).
     public Cart getOrCreateCartForCustomer(Integer customerId) {
+        Integer cartId = activeCartCache.resolve(customerId, this::findOrCreateCartId);
+        Optional<Cart> cart = cartRepository.findById(cartId);
+        if (cart.isPresent()) {
+            return cart.get();
+        }
+
+        activeCartCache.evict(customerId);
+        return cartRepository.findById(activeCartCache.resolve(customerId, this::findOrCreateCartId))
+                .orElseThrow(() -> new IllegalStateException("Active cart vanished"));
+    }
+
+    // The customer's most recent cart, created if none exists
+    private Integer findOrCreateCartId(Integer customerId) {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
 
@@ -53,36 +80,58 @@ public class CartService {
         Optional<Cart> existingCart = cartRepository.findTopByCustomerOrderByCreatedAtDesc(customer);
 
         if (existingCart.isPresent()) {
-            return existingCart.get();
+            return existingCart.get().getCartId();
         } else {
             // Create a new cart if none exists
-            Cart cart = new Cart(customer);
-            return cartRepository.save(cart);
+            return cartRepository.save(new Cart(customer)).getCartId();
         }
     }
 
-    // Get cart summary with total items and price
-    public Map<String, Object> getCartSummary(Integer cartId) {
-        if (!cartRepository.existsById(cartId)) {
-            throw new IllegalArgumentException("Cart not found");
-        }
+    // Strong ETag for the cart summary: cart version (bumped on item changes) plus the newest book change
+    public Optional<String> getCartSummaryETag(Integer cartId) {
+        return cartRepository.findSummaryVersion(cartId).stream()
+                .findFirst()
+                .map(version -> "c" + cartId + "-"
+                        + DigestUtils.md5DigestAsHex(Arrays.toString(version).getBytes(StandardCharsets.UTF_8)));
+    }
 
-        List<CartItems> items = cartItemsRepository.findByCartCartId(cartId);
+    // Item count and subtotal as stored on the cart row
+    public Optional<CartBadge> getCartBadge(Integer cartId) {
+        return cartRepository.findBadge(cartId);
+    }
 
-        int totalItems = items.stream()
-                .mapToInt(CartItems::getQuantity)
-                .sum();
+    // Get cart summary with total items and price
+    public Map<String, Object> getCartSummary(Integer cartId) {
+        CartBadge totals = cartRepository.findBadge(cartId)
+                .orElseThrow(() -> new IllegalArgumentException("Cart not found"));
 
-        BigDecimal totalPrice = items.stream()
-                .map(item -> item.getBook().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // One query for all lines, whatever the cart size; no entities are loaded
+        List<CartLine> items = cartItemsRepository.findLinesByCartId(cartId);
 
         Map<String, Object> summary = new HashMap<>();
         summary.put("cartId", cartId);
-        summary.put("totalItems", totalItems);
-        summary.put("totalPrice", totalPrice);
+        summary.put("totalItems", totals.itemCount());
+        summary.put("totalPrice", totals.subtotal());
         summary.put("items", items);
 
         return summary;
     }
+
+    // Saved books may have a new price: reprice the carts holding them
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onBookChange(BookChangeEvent event) {
+        if (!event.saved().isEmpty()) {
+            cartRepository.repriceCartsContaining(event.saved().stream()
+                    .map(Book::getBookId)
+                    .toList());
+        }
+    }
+
+    // A deleted book takes its cart items with it (ON DELETE CASCADE). Runs in the delete's transaction,
+    // while the items still exist, so only the carts holding the book are touched.
+    @EventListener
+    public void onBookDeleting(BookDeletingEvent event) {
+        cartRepository.removeBookFromTotals(event.bookId());
+    }
 }
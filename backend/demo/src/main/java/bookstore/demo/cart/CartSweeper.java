@@ -0,0 +1,115 @@
+package bookstore.demo.cart;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Deletes carts left idle (UpdatedAt) past the TTL; their items go with them (ON DELETE CASCADE).
+// Walks Cart in fixed primary-key windows up to the largest id at the start of the pass, one auto-committed
+// delete per window with a pause after each that removed something. Every statement touches at most one
+// window of rows however sparse the idle carts are, so live traffic is never queued behind the sweep.
+// Orders keep their own items, so nothing a customer bought is lost.
+@Component
+public class CartSweeper {
+
+    private static final String MAX_CART_ID_SQL = "SELECT COALESCE(MAX(CartID), 0) FROM Cart";
+
+    private static final String DELETE_CARTS_SQL = "DELETE FROM Cart WHERE CartID BETWEEN ? AND ? AND UpdatedAt < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalDeleted = new AtomicLong();
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+    private final AtomicLong lastRunChunks = new AtomicLong();
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile LocalDateTime lastRunStarted;
+    private volatile LocalDateTime lastRunFinished;
+
+    public CartSweeper(JdbcTemplate jdbcTemplate,
+            @Value("${bookstore.carts.sweeper.enabled:true}") boolean enabled,
+            @Value("${bookstore.carts.sweeper.ttl-days:90}") int ttlDays,
+            @Value("${bookstore.carts.sweeper.chunk-size:500}") int chunkSize,
+            @Value("${bookstore.carts.sweeper.pause-ms:200}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.ttl = Duration.ofDays(ttlDays);
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(cron = "${bookstore.carts.sweeper.cron:0 30 3 * * *}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    // One pass over the whole table; returns the number of carts deleted (0 if a pass is already running)
+    public long sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(ttl));
+        runs.incrementAndGet();
+        lastRunStarted = LocalDateTime.now();
+        lastRunFinished = null;
+        lastRunDeleted.set(0);
+        lastRunChunks.set(0);
+        cursor.set(0);
+        try {
+            // Carts created after this are not idle yet
+            long maxId = jdbcTemplate.queryForObject(MAX_CART_ID_SQL, Long.class);
+            for (long from = 1; from <= maxId; from += chunkSize) {
+                long to = Math.min(from + chunkSize - 1, maxId);
+                int removed = jdbcTemplate.update(DELETE_CARTS_SQL, from, to, cutoff);
+                lastRunDeleted.addAndGet(removed);
+                lastRunChunks.incrementAndGet();
+                totalDeleted.addAndGet(removed);
+                cursor.set(to);
+
+                // Windows with nothing idle held no locks worth waiting out
+                if (removed > 0 && to < maxId) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lastRunFinished = LocalDateTime.now();
+            running.set(false);
+        }
+        return lastRunDeleted.get();
+    }
+
+    // Progress of the current or last pass (updated per chunk), plus lifetime totals
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ttlDays", ttl.toDays());
+        stats.put("running", running.get());
+        stats.put("cursor", cursor.get());
+        stats.put("runs", runs.get());
+        stats.put("totalDeleted", totalDeleted.get());
+        stats.put("lastRunDeleted", lastRunDeleted.get());
+        stats.put("lastRunChunks", lastRunChunks.get());
+        stats.put("lastRunStarted", lastRunStarted);
+        stats.put("lastRunFinished", lastRunFinished);
+        return stats;
+    }
+}
@@ -2,6 +2,7 @@ package bookstore.demo.customerOrder;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import bookstore.demo.cart.CartService;
 
@@ -37,7 +39,16 @@ public class CustomerOrderController {
 
     // Get order by ID
     @GetMapping("/{id}")
-    public ResponseEntity<CustomerOrder> getOrderById(@PathVariable Integer id) {
+    public ResponseEntity<CustomerOrder> getOrderById(@PathVariable Integer id, WebRequest request) {
+        // Decide 304 from the version columns alone; the ETag is read before the body, so it is never newer
+        Optional<String> etag = orderService.getOrderETag(id);
+        if (etag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(etag.get())) {
+            return null;
+        }
+
         return orderService.getOrderById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -3,6 +3,8 @@ package bookstore.demo.customerOrder;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -13,4 +15,8 @@ public interface CustomerOrderRepository extends JpaRepository<CustomerOrder, In
 
     // Find orders by status
     List<CustomerOrder> findByOrderStatus(CustomerOrder.OrderStatus status);
+
+    // Order and customer versions, without loading either entity (for ETags)
+    @Query("SELECT o.updatedAt, c.updatedAt FROM CustomerOrder o LEFT JOIN o.customer c WHERE o.orderId = :orderId")
+    List<Object[]> findVersion(@Param("orderId") Integer orderId);
 }
@@ -1,19 +1,26 @@
 package bookstore.demo.customerOrder;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
 import bookstore.demo.book.Book;
 import bookstore.demo.book.BookRepository;
+import bookstore.demo.book.BookSalesEvent;
 import bookstore.demo.book.BookService;
+import bookstore.demo.cart.ActiveCartCache;
 import bookstore.demo.cart.Cart;
-import bookstore.demo.cart.CartItems;
 import bookstore.demo.cart.CartItemsRepository;
 import bookstore.demo.cart.CartRepository;
 import bookstore.demo.customer.Customer;
@@ -22,12 +29,18 @@ import bookstore.demo.customer.CustomerRepository;
 @Service
 public class CustomerOrderService {
 
+    private static final String INSERT_ORDER_ITEM_SQL = "INSERT INTO OrderItems "
+            + "(OrderID, BookID, Quantity, PriceAtPurchase) VALUES (?, ?, ?, ?)";
+
     private final CustomerOrderRepository orderRepository;
     private final OrderItemsRepository orderItemsRepository;
     private final CustomerRepository customerRepository;
     private final CartRepository cartRepository;
     private final CartItemsRepository cartItemsRepository;
     private final BookService bookService;
+    private final ActiveCartCache activeCartCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
 
     public CustomerOrderService(CustomerOrderRepository orderRepository,
             OrderItemsRepository orderItemsRepository,
@@ -35,13 +48,19 @@ public class CustomerOrderService {
             CartRepository cartRepository,
             CartItemsRepository cartItemsRepository,
             BookRepository bookRepository,
-            BookService bookService) {
+            BookService bookService,
+            ActiveCartCache activeCartCache,
+            ApplicationEventPublisher eventPublisher,
+            JdbcTemplate jdbcTemplate) {
         this.orderRepository = orderRepository;
         this.orderItemsRepository = orderItemsRepository;
         this.customerRepository = customerRepository;
         this.cartRepository = cartRepository;
         this.cartItemsRepository = cartItemsRepository;
         this.bookService = bookService;
+        this.activeCartCache = activeCartCache;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     // Get all orders
@@ -54,6 +73,14 @@ public class CustomerOrderService {
         return orderRepository.findById(id);
     }
 
+    // Strong ETag for an order, from the order and customer UpdatedAt columns (no entity is loaded)
+    public Optional<String> getOrderETag(Integer id) {
+        return orderRepository.findVersion(id).stream()
+                .findFirst()
+                .map(version -> "o" + id + "-"
+                        + DigestUtils.md5DigestAsHex(Arrays.toString(version).getBytes(StandardCharsets.UTF_8)));
+    }
+
     // Check if order exists
     public boolean orderExists(Integer id) {
         return orderRepository.existsById(id);
@@ -64,32 +91,47 @@ public class CustomerOrderService {
         return orderRepository.findByCustomerCustomerId(customerId);
     }
 
-    // Create order from cart
+    // Create order from cart. A fixed number of statements however many lines the cart has: the cart lines,
+    // one locking read of their books (BookID order), one stock update (or the inventory ledger when it is
+    // enabled), the order row, one batch of order items and the cart reset. The lock keeps prices fixed until
+    // commit; stock is checked and taken only by BookService.decrementStocks (the old triggers are gone).
     @Transactional
     public CustomerOrder createOrderFromCart(Integer cartId, Integer customerId, String destination, CustomerOrder.PaymentMethod paymentMethod) {
         // Validate cart exists
         Cart cart = cartRepository.findById(cartId)
                 .orElseThrow(() -> new IllegalArgumentException("Cart not found"));
 
-        // Validate customer exists
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
-
-        // Verify cart belongs to customer
+        // Verify cart belongs to customer (the customer is loaded with the cart)
         if (!cart.getCustomer().getCustomerId().equals(customerId)) {
             throw new IllegalArgumentException("Cart does not belong to the specified customer");
         }
+        Customer customer = cart.getCustomer();
 
         // Get cart items
-        List<CartItems> cartItems = cartItemsRepository.findByCartCartId(cartId);
-        if (cartItems.isEmpty()) {
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        cartItemsRepository.findLinesByCartId(cartId)
+                .forEach(line -> quantities.merge(line.book().bookId(), line.quantity(), Integer::sum));
+        if (quantities.isEmpty()) {
             throw new IllegalArgumentException("Cannot create order from empty cart");
         }
 
-        // Calculate total
-        BigDecimal total = cartItems.stream()
-                .map(item -> item.getBook().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Lock the books until commit and price every line from the locked rows
+        Map<Integer, Book> books = new HashMap<>();
+        bookService.lockBooks(quantities.keySet()).forEach(book -> books.put(book.getBookId(), book));
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            Book book = books.get(line.getKey());
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+            total = total.add(book.getPrice().multiply(BigDecimal.valueOf(line.getValue())));
+        }
+
+        // Take the stock for all lines at once; the guarded update (or the ledger) is the only stock check,
+        // and a short line rolls back the whole order
+        if (!bookService.decrementStocks(quantities)) {
+            throw new IllegalArgumentException("Not enough stock available");
+        }
 
         // Create order
         CustomerOrder order = new CustomerOrder(
@@ -102,31 +144,19 @@ public class CustomerOrderService {
 
         CustomerOrder savedOrder = orderRepository.save(order);
 
-        // Create order items from cart items
-        for (CartItems cartItem : cartItems) {
-            Book book = cartItem.getBook();
-
-            // Check stock
-            if (book.getStock() < cartItem.getQuantity()) {
-                throw new IllegalArgumentException("Not enough stock for " + book.getTitle());
-            }
-
-            // Create order item
-            OrderItems orderItem = new OrderItems(
-                    savedOrder,
-                    book,
-                    cartItem.getQuantity(),
-                    book.getPrice()
-            );
-
-            orderItemsRepository.save(orderItem);
-
-            // Update stock
-            bookService.updateBookStock(book.getBookId(), book.getStock() - cartItem.getQuantity());
-        }
+        // Create order items from cart items, priced from the locked rows
+        List<Object[]> orderItems = quantities.entrySet().stream()
+                .map(line -> new Object[] {
+                        savedOrder.getOrderId(), line.getKey(), line.getValue(), books.get(line.getKey()).getPrice()})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM_SQL, orderItems);
 
         // Clear cart
         cartItemsRepository.deleteByCartCartId(cartId);
+        cartRepository.resetTotals(cartId);
+        activeCartCache.evict(customerId);
+
+        eventPublisher.publishEvent(new BookSalesEvent(savedOrder.getOrderId(), savedOrder.getCreatedAt(), quantities));
 
         return savedOrder;
     }
@@ -173,6 +203,12 @@ public class CustomerOrderService {
             throw new IllegalArgumentException("Cannot change status of canceled order");
         }
 
+        // Any order that is not yet canceled can be canceled here (as with the old after_order_canceled
+        // trigger); its stock is returned and its units taken off the bestseller board
+        if (status == CustomerOrder.OrderStatus.canceled) {
+            return cancel(order);
+        }
+
         order.setOrderStatus(status);
         return orderRepository.save(order);
     }
@@ -188,14 +224,21 @@ public class CustomerOrderService {
             throw new IllegalArgumentException("Only pending orders can be canceled");
         }
 
-        // Restore stock
-        List<OrderItems> orderItems = orderItemsRepository.findByOrderOrderId(orderId);
+        return cancel(order);
+    }
+
+    // Return the order's stock, take its units off the sales figures and mark it canceled
+    private CustomerOrder cancel(CustomerOrder order) {
+        List<OrderItems> orderItems = orderItemsRepository.findByOrderOrderId(order.getOrderId());
+        Map<Integer, Integer> returned = new HashMap<>();
         for (OrderItems item : orderItems) {
             if (item.getBook() != null) {
                 Book book = item.getBook();
-                bookService.updateBookStock(book.getBookId(), book.getStock() + item.getQuantity());
+                bookService.incrementStock(book.getBookId(), item.getQuantity());
+                returned.merge(book.getBookId(), -item.getQuantity(), Integer::sum);
             }
         }
+        eventPublisher.publishEvent(new BookSalesEvent(order.getOrderId(), order.getCreatedAt(), returned));
 
         // Update order status
         order.setOrderStatus(CustomerOrder.OrderStatus.canceled);
@@ -1,13 +1,16 @@
 package bookstore.demo.customerOrder;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import bookstore.demo.book.Book;
 import bookstore.demo.book.BookRepository;
+import bookstore.demo.book.BookSalesEvent;
 import bookstore.demo.book.BookService;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class OrderItemsService {
@@ -16,15 +19,18 @@ public class OrderItemsService {
     private final CustomerOrderRepository orderRepository;
     private final BookRepository bookRepository;
     private final BookService bookService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderItemsService(OrderItemsRepository orderItemsRepository,
             CustomerOrderRepository orderRepository,
             BookRepository bookRepository,
-            BookService bookService) {
+            BookService bookService,
+            ApplicationEventPublisher eventPublisher) {
         this.orderItemsRepository = orderItemsRepository;
         this.orderRepository = orderRepository;
         this.bookRepository = bookRepository;
         this.bookService = bookService;
+        this.eventPublisher = eventPublisher;
     }
 
     // Get all items in an order
@@ -46,17 +52,16 @@ public class OrderItemsService {
             throw new IllegalArgumentException("Can only add items to pending orders");
         }
 
-        // Check if there's enough stock
-        if (book.getStock() < quantity) {
+        // Check and take the stock in one conditional update
+        if (!bookService.decrementStock(book.getBookId(), quantity)) {
             throw new IllegalArgumentException("Not enough stock available");
         }
 
         // Create new order item
         OrderItems orderItem = new OrderItems(order, book, quantity, book.getPrice());
         OrderItems savedItem = orderItemsRepository.save(orderItem);
-
-        // Update book stock
-        bookService.updateBookStock(book.getBookId(), book.getStock() - quantity);
+        eventPublisher.publishEvent(new BookSalesEvent(order.getOrderId(), order.getCreatedAt(),
+                Map.of(book.getBookId(), quantity)));
 
         // Update order total
         updateOrderTotal(order);
@@ -83,7 +88,9 @@ public class OrderItemsService {
         // Restore book stock if book exists
         if (item.getBook() != null) {
             Book book = item.getBook();
-            bookService.updateBookStock(book.getBookId(), book.getStock() + item.getQuantity());
+            bookService.incrementStock(book.getBookId(), item.getQuantity());
+            eventPublisher.publishEvent(new BookSalesEvent(orderId, item.getOrder().getCreatedAt(),
+                    Map.of(book.getBookId(), -item.getQuantity())));
         }
 
         // Remove the item
@@ -0,0 +1,232 @@
+package bookstore.demo.sales;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import bookstore.demo.book.Book;
+import bookstore.demo.book.BookCatalog;
+import bookstore.demo.book.BookSalesEvent;
+
+// Rolling day/week/month bestseller lists, overall and per genre.
+// Units sold are kept in one bucket per day; each window keeps a running total that is adjusted as
+// orders come in and as days fall out of it, so nothing is re-aggregated from OrderItems per request.
+// Ranked lists are recomputed from the running totals only after a change.
+// Days are UTC days on both sides: the database buckets by epoch day, which does not depend on the
+// session time zone, and order times (JVM local) are converted before they are bucketed here.
+@Component
+public class BestsellerBoard {
+
+    public enum Window {
+        day(1), week(7), month(30);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+    }
+
+    // Longest list served per window and genre
+    public static final int TOP_K = 50;
+
+    private static final String OVERALL = "";
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+
+    private static final String DAILY_SALES_SQL = "SELECT FLOOR(UNIX_TIMESTAMP(o.CreatedAt) / 86400) AS salesDay, "
+            + "oi.BookID, SUM(oi.Quantity) AS units "
+            + "FROM OrderItems oi JOIN CustomerOrder o ON o.OrderID = oi.OrderID "
+            + "WHERE oi.BookID IS NOT NULL AND o.OrderStatus <> 'canceled' AND o.CreatedAt >= ? "
+            + "GROUP BY salesDay, oi.BookID";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookCatalog bookCatalog;
+    private final boolean rebuildOnStartup;
+
+    // day -> units sold per book that day, for the last month
+    private final TreeMap<LocalDate, IntIntMap> days = new TreeMap<>();
+
+    // window -> units sold per book within it
+    private final Map<Window, IntIntMap> totals = new EnumMap<>(Window.class);
+
+    // window -> genre (lowercase, "" for overall) -> ranked entries; null when stale
+    private final Map<Window, Map<String, List<Entry>>> boards = new EnumMap<>(Window.class);
+
+    private LocalDate today = LocalDate.now(ZONE);
+
+    public BestsellerBoard(JdbcTemplate jdbcTemplate, BookCatalog bookCatalog,
+            @Value("${bookstore.sales.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookCatalog = bookCatalog;
+        this.rebuildOnStartup = rebuildOnStartup;
+        for (Window window : Window.values()) {
+            totals.put(window, new IntIntMap());
+        }
+    }
+
+    // Best sellers of the window, optionally limited to one genre
+    public synchronized List<Entry> getBestsellers(Window window, String genre, int limit) {
+        advance(LocalDate.now(ZONE));
+
+        Map<String, List<Entry>> ranked = boards.get(window);
+        if (ranked == null) {
+            ranked = rank(totals.get(window));
+            boards.put(window, ranked);
+        }
+
+        List<Entry> entries = ranked.getOrDefault(genre == null ? OVERALL : genre.toLowerCase(Locale.ROOT), List.of());
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    // Placed orders add units to the day they were placed on, cancellations take them off again
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSales(BookSalesEvent event) {
+        advance(LocalDate.now(ZONE));
+        LocalDate day = event.orderedAt() != null ? day(event.orderedAt()) : today;
+        if (day.isAfter(today) || day.isBefore(today.minusDays(Window.month.days - 1))) {
+            return;
+        }
+
+        IntIntMap bucket = days.computeIfAbsent(day, d -> new IntIntMap());
+        event.quantities().forEach((bookId, units) -> {
+            // The day's bucket stops at zero; the windows take the same clamped change, so they stay
+            // the sum of their days and nothing drifts when the day later leaves them
+            int before = bucket.get(bookId);
+            int applied = bucket.addTo(bookId, units) - before;
+            if (applied == 0) {
+                return;
+            }
+            for (Window window : Window.values()) {
+                if (!day.isBefore(today.minusDays(window.days - 1))) {
+                    totals.get(window).addTo(bookId, applied);
+                    boards.remove(window);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    // Reload the last month from OrderItems, aggregated per day and book by the database
+    @Scheduled(cron = "${bookstore.sales.rebuild-cron:0 0 4 * * *}")
+    public synchronized void rebuild() {
+        today = LocalDate.now(ZONE);
+        days.clear();
+        for (Window window : Window.values()) {
+            totals.put(window, new IntIntMap());
+        }
+        boards.clear();
+
+        LocalDate from = today.minusDays(Window.month.days - 1);
+        jdbcTemplate.query(DAILY_SALES_SQL, rs -> {
+            LocalDate day = LocalDate.ofEpochDay(rs.getLong("salesDay"));
+            int bookId = rs.getInt("BookID");
+            int units = rs.getInt("units");
+            days.computeIfAbsent(day, d -> new IntIntMap()).addTo(bookId, units);
+            for (Window window : Window.values()) {
+                if (!day.isBefore(today.minusDays(window.days - 1))) {
+                    totals.get(window).addTo(bookId, units);
+                }
+            }
+        }, Timestamp.from(from.atStartOfDay(ZONE).toInstant()));
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("days", days.size());
+        totals.forEach((window, total) -> stats.put(window.name() + "Books", total.size()));
+        return stats;
+    }
+
+    // Roll the windows forward at midnight UTC: days leaving a window are subtracted from its total
+    @Scheduled(cron = "0 0 0 * * *", zone = "UTC")
+    public synchronized void rollOver() {
+        advance(LocalDate.now(ZONE));
+    }
+
+    // Callers hold the lock; package-private so the rollover can be tested with a given date
+    void advance(LocalDate now) {
+        if (!now.isAfter(today)) {
+            return;
+        }
+
+        for (Window window : Window.values()) {
+            LocalDate oldStart = today.minusDays(window.days - 1);
+            LocalDate newStart = now.minusDays(window.days - 1);
+            IntIntMap total = totals.get(window);
+            days.subMap(oldStart, true, newStart, false).values()
+                    .forEach(bucket -> bucket.forEach((bookId, units) -> total.addTo(bookId, -units)));
+            boards.remove(window);
+        }
+        days.headMap(now.minusDays(Window.month.days - 1), false).clear();
+        today = now;
+    }
+
+    // Order times are JVM local date-times
+    private static LocalDate day(LocalDateTime orderedAt) {
+        return orderedAt.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZONE).toLocalDate();
+    }
+
+    // Top-K per genre and overall in one pass over the window's totals
+    private Map<String, List<Entry>> rank(IntIntMap total) {
+        BookCatalog.Snapshot snapshot = bookCatalog.snapshot();
+        Map<String, List<Entry>> ranked = new HashMap<>();
+        total.forEach((bookId, units) -> {
+            Book book = snapshot.byId().get(bookId);
+            if (book == null) {
+                return;
+            }
+            Entry entry = new Entry(bookId, units);
+            offer(ranked.computeIfAbsent(OVERALL, g -> new ArrayList<>()), entry);
+            if (book.getGenre() != null) {
+                offer(ranked.computeIfAbsent(book.getGenre().toLowerCase(Locale.ROOT), g -> new ArrayList<>()), entry);
+            }
+        });
+        return ranked;
+    }
+
+    // Insert into a list kept sorted by units (then id), capped at TOP_K
+    private static void offer(List<Entry> list, Entry entry) {
+        if (list.size() == TOP_K && !entry.ranksAbove(list.get(TOP_K - 1))) {
+            return;
+        }
+        int pos = list.size();
+        while (pos > 0 && entry.ranksAbove(list.get(pos - 1))) {
+            pos--;
+        }
+        list.add(pos, entry);
+        if (list.size() > TOP_K) {
+            list.remove(TOP_K);
+        }
+    }
+
+    public record Entry(int bookId, int unitsSold) {
+
+        private boolean ranksAbove(Entry other) {
+            return unitsSold > other.unitsSold || (unitsSold == other.unitsSold && bookId < other.bookId);
+        }
+    }
+}
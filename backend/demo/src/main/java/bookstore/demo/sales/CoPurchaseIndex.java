@@ -0,0 +1,251 @@
+package bookstore.demo.sales;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import bookstore.demo.book.BookSalesEvent;
+
+// "Customers also bought": co-occurrence counts of books within the same order, built from OrderItems.
+// Counts live in sparse primitive maps per book; each book's top-K neighbours are kept precomputed,
+// so a lookup is a single map read. Updated as orders are placed or canceled, rebuilt from the table
+// at startup and on a schedule (which also picks up items added to or removed from existing orders).
+@Component
+public class CoPurchaseIndex {
+
+    private static final int TOP_K = 20;
+
+    // Bulk orders say little about affinity and cost n^2 pair updates
+    private static final int MAX_BASKET = 50;
+
+    private static final String ORDER_BOOKS_SQL = "SELECT oi.OrderID, oi.BookID FROM OrderItems oi "
+            + "JOIN CustomerOrder o ON o.OrderID = oi.OrderID "
+            + "WHERE oi.BookID IS NOT NULL AND o.OrderStatus <> 'canceled' "
+            + "ORDER BY oi.OrderID";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final boolean rebuildOnStartup;
+
+    // bookId -> (other bookId -> orders containing both); guarded by this
+    private Map<Integer, IntIntMap> counts = new HashMap<>();
+
+    // bookId -> neighbour ids, best first; read without locking, replaced wholesale by a rebuild
+    private volatile Map<Integer, int[]> related = new ConcurrentHashMap<>();
+
+    // Events that arrived while a rebuild was scanning the table, replayed onto its result; null when
+    // no rebuild is running. Guarded by this
+    private List<BookSalesEvent> buffered;
+
+    public CoPurchaseIndex(DataSource dataSource,
+            @Value("${bookstore.sales.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        // Forward-only, row-by-row result set so the rebuild does not buffer the whole table
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    // Books most often bought together with the given one
+    public List<Integer> getRelated(Integer bookId, int limit) {
+        int[] ids = related.getOrDefault(bookId, new int[0]);
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < ids.length && i < limit; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    // Orders placed add their basket, cancellations subtract it; single-book deltas form no pairs
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSales(BookSalesEvent event) {
+        if (buffered != null) {
+            buffered.add(event);
+        }
+        apply(event);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    // Recount everything from OrderItems. The scan and the top-K lists are built without the lock, so
+    // orders keep updating the current model meanwhile; those events are also buffered and replayed
+    // onto the new model when it is swapped in, so none is lost. An event may also be for an order the
+    // scan already read in its final state: the replay checks each event's OrderID against the scan.
+    @Scheduled(cron = "${bookstore.sales.rebuild-cron:0 0 4 * * *}")
+    public void rebuild() {
+        synchronized (this) {
+            if (buffered != null) {
+                return;
+            }
+            buffered = new ArrayList<>();
+        }
+
+        try {
+            Map<Integer, IntIntMap> rebuilt = new HashMap<>();
+            List<Integer> basket = new ArrayList<>();
+            int[] currentOrder = {0};
+            OrderIds scanned = new OrderIds();
+
+            streamingJdbcTemplate.query(ORDER_BOOKS_SQL, rs -> {
+                int orderId = rs.getInt(1);
+                if (orderId != currentOrder[0]) {
+                    addBasket(rebuilt, basket);
+                    basket.clear();
+                    currentOrder[0] = orderId;
+                    scanned.add(orderId);
+                }
+                basket.add(rs.getInt(2));
+            });
+            addBasket(rebuilt, basket);
+
+            Map<Integer, int[]> rebuiltRelated = new ConcurrentHashMap<>();
+            rebuilt.forEach((bookId, neighbours) -> rebuiltRelated.put(bookId, topK(neighbours)));
+
+            synchronized (this) {
+                counts = rebuilt;
+                related = rebuiltRelated;
+                replay(buffered, scanned);
+            }
+        } finally {
+            synchronized (this) {
+                buffered = null;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long pairs = counts.values().stream().mapToLong(IntIntMap::size).sum() / 2;
+        return Map.of("books", counts.size(), "pairs", pairs);
+    }
+
+    // The scan saw every order committed before it, in its state at that time. A placement it saw is
+    // already counted. A cancellation of an order it did not see (already canceled) has nothing to take
+    // back, unless the order was placed during the rebuild and that placement was replayed here.
+    private void replay(List<BookSalesEvent> events, OrderIds scanned) {
+        Set<Integer> replayedPlacements = new HashSet<>();
+        for (BookSalesEvent event : events) {
+            boolean seen = event.orderId() != null && scanned.contains(event.orderId());
+            if (isPlacement(event)) {
+                if (!seen) {
+                    apply(event);
+                    replayedPlacements.add(event.orderId());
+                }
+            } else if (seen || replayedPlacements.contains(event.orderId())) {
+                apply(event);
+            }
+        }
+    }
+
+    private static boolean isPlacement(BookSalesEvent event) {
+        return !event.quantities().isEmpty() && event.quantities().values().iterator().next() > 0;
+    }
+
+    private void apply(BookSalesEvent event) {
+        Set<Integer> basket = new TreeSet<>(event.quantities().keySet());
+        if (basket.size() < 2 || basket.size() > MAX_BASKET) {
+            return;
+        }
+        int sign = isPlacement(event) ? 1 : -1;
+
+        Integer[] books = basket.toArray(new Integer[0]);
+        for (int i = 0; i < books.length; i++) {
+            for (int j = i + 1; j < books.length; j++) {
+                counts.computeIfAbsent(books[i], id -> new IntIntMap()).addTo(books[j], sign);
+                counts.computeIfAbsent(books[j], id -> new IntIntMap()).addTo(books[i], sign);
+            }
+        }
+        for (Integer book : books) {
+            refresh(book);
+        }
+    }
+
+    private static void addBasket(Map<Integer, IntIntMap> target, List<Integer> basket) {
+        int[] books = basket.stream().mapToInt(Integer::intValue).distinct().toArray();
+        if (books.length < 2 || books.length > MAX_BASKET) {
+            return;
+        }
+        for (int i = 0; i < books.length; i++) {
+            IntIntMap neighbours = target.computeIfAbsent(books[i], id -> new IntIntMap());
+            for (int j = 0; j < books.length; j++) {
+                if (i != j) {
+                    neighbours.addTo(books[j], 1);
+                }
+            }
+        }
+    }
+
+    // Recompute one book's top-K neighbours from its counters
+    private void refresh(Integer bookId) {
+        IntIntMap neighbours = counts.get(bookId);
+        if (neighbours == null || neighbours.size() == 0) {
+            counts.remove(bookId);
+            related.remove(bookId);
+            return;
+        }
+        related.put(bookId, topK(neighbours));
+    }
+
+    // Neighbour ids by count, then lower id
+    private static int[] topK(IntIntMap neighbours) {
+        int[] topIds = new int[TOP_K];
+        int[] topCounts = new int[TOP_K];
+        int[] filled = {0};
+        neighbours.forEach((other, count) -> {
+            int n = filled[0];
+            if (n == TOP_K && !better(count, other, topCounts[n - 1], topIds[n - 1])) {
+                return;
+            }
+            int pos = Math.min(n, TOP_K - 1);
+            while (pos > 0 && better(count, other, topCounts[pos - 1], topIds[pos - 1])) {
+                topIds[pos] = topIds[pos - 1];
+                topCounts[pos] = topCounts[pos - 1];
+                pos--;
+            }
+            topIds[pos] = other;
+            topCounts[pos] = count;
+            filled[0] = Math.min(n + 1, TOP_K);
+        });
+        return Arrays.copyOf(topIds, filled[0]);
+    }
+
+    private static boolean better(int count, int id, int otherCount, int otherId) {
+        return count > otherCount || (count == otherCount && id < otherId);
+    }
+
+    // OrderIDs in scan order (ascending, see ORDER_BOOKS_SQL), four bytes each
+    private static final class OrderIds {
+
+        private int[] ids = new int[1024];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package bookstore.demo.sales;
+
+// Minimal open-addressing int -> int map (linear probing, backward-shift deletion) for counters keyed by
+// BookID. Avoids boxing both sides of every co-purchase count. Keys must be non-zero; not thread-safe.
+final class IntIntMap {
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    IntIntMap() {
+        this(8);
+    }
+
+    IntIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : values[slot];
+    }
+
+    // Add delta to the counter for key; counters that drop to zero or below are removed
+    int addTo(int key, int delta) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                int value = values[slot] + delta;
+                if (value <= 0) {
+                    removeAt(slot);
+                    return 0;
+                }
+                values[slot] = value;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (delta <= 0) {
+            return 0;
+        }
+
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 4 > keys.length * 3) {
+            grow();
+        }
+        return delta;
+    }
+
+    void forEach(Entry consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Shift following entries back so probe chains stay unbroken without tombstones
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        size--;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                addTo(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    interface Entry {
+        void accept(int key, int value);
+    }
+}
@@ -0,0 +1,85 @@
+package bookstore.demo.sales;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import bookstore.demo.book.BookService;
+import bookstore.demo.book.BookSummary;
+
+// Sales-derived book listings, served from in-memory models
+@RestController
+@RequestMapping("/api/books")
+@CrossOrigin(origins = "http://localhost:3000")
+public class SalesController {
+
+    private final BookService bookService;
+    private final CoPurchaseIndex coPurchaseIndex;
+    private final BestsellerBoard bestsellerBoard;
+
+    public SalesController(BookService bookService, CoPurchaseIndex coPurchaseIndex,
+            BestsellerBoard bestsellerBoard) {
+        this.bookService = bookService;
+        this.coPurchaseIndex = coPurchaseIndex;
+        this.bestsellerBoard = bestsellerBoard;
+    }
+
+    // Best sellers of the last day, week or month, overall or within one genre
+    @GetMapping("/bestsellers")
+    public ResponseEntity<?> getBestsellers(@RequestParam(defaultValue = "week") String window,
+            @RequestParam(required = false) String genre,
+            @RequestParam(defaultValue = "10") int limit) {
+        BestsellerBoard.Window salesWindow;
+        try {
+            salesWindow = BestsellerBoard.Window.valueOf(window.toLowerCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid window: " + window));
+        }
+        if (limit <= 0 || limit > BestsellerBoard.TOP_K) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Limit must be between 1 and " + BestsellerBoard.TOP_K));
+        }
+
+        List<Bestseller> bestsellers = bestsellerBoard.getBestsellers(salesWindow, genre, limit).stream()
+                .flatMap(entry -> bookService.getBookById(entry.bookId()).stream()
+                        .map(book -> new Bestseller(BookSummary.from(book), entry.unitsSold())))
+                .toList();
+        return ResponseEntity.ok(bestsellers);
+    }
+
+    // "Customers also bought": books most often ordered together with this one
+    @GetMapping("/{id}/related")
+    public ResponseEntity<?> getRelatedBooks(@PathVariable Integer id,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (bookService.getBookById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit must be positive"));
+        }
+
+        List<BookSummary> related = coPurchaseIndex.getRelated(id, limit).stream()
+                .flatMap(relatedId -> bookService.getBookById(relatedId).stream())
+                .map(BookSummary::from)
+                .toList();
+        return ResponseEntity.ok(related);
+    }
+
+    // Size of the in-memory sales models
+    @GetMapping("/sales/stats")
+    public ResponseEntity<Map<String, Object>> getSalesStats() {
+        return ResponseEntity.ok(Map.of(
+                "coPurchase", coPurchaseIndex.getStats(),
+                "bestsellers", bestsellerBoard.getStats()));
+    }
+
+    public record Bestseller(BookSummary book, int unitsSold) {
+    }
+}
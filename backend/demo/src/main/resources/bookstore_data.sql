@@ -556,6 +556,21 @@ VALUES (1, 1, 1),
     (3, 1, 1),
     (4, 2, 3);
 
+-- Cart running totals for the items above
+UPDATE Cart c
+SET
+    c.ItemCount = (
+        SELECT COALESCE(SUM(ci.Quantity), 0)
+        FROM CartItems ci
+        WHERE ci.CartID = c.CartID
+    ),
+    c.Subtotal = (
+        SELECT COALESCE(SUM(ci.Quantity * b.Price), 0)
+        FROM CartItems ci
+            JOIN Book b ON b.BookID = ci.BookID
+        WHERE ci.CartID = c.CartID
+    );
+
 -- Mock data for CustomerOrder table
 INSERT INTO
     CustomerOrder (
@@ -7,6 +7,9 @@ USE bookstore;
 -- ====================================================
 -- TABLES
 -- ====================================================
+-- UpdatedAt columns keep microseconds: they double as row versions for HTTP ETags,
+-- and second precision would hide two changes made within the same second.
+
 -- Customer table
 CREATE TABLE Customer (
     CustomerID INT AUTO_INCREMENT PRIMARY KEY,
@@ -16,7 +19,7 @@ CREATE TABLE Customer (
     Email VARCHAR(255) UNIQUE NOT NULL,
     UserRole ENUM('admin', 'customer') DEFAULT 'customer' NOT NULL,
     CreatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    UpdatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    UpdatedAt TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
 );
 
 -- Book table
@@ -34,16 +37,20 @@ CREATE TABLE Book (
     Genre VARCHAR(50) NOT NULL,
     Author VARCHAR(100) NOT NULL,
     Stock INT DEFAULT 0 NOT NULL CHECK (Stock >= 0),
-    CreatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    UpdatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    -- NOT NULL: both are keyset pagination keys (BookCursor)
+    CreatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UpdatedAt TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
 );
 
 -- Cart table
 CREATE TABLE Cart (
     CartID INT AUTO_INCREMENT PRIMARY KEY,
     CustomerID INT NOT NULL,
+    -- Running totals over CartItems, maintained by the application
+    ItemCount INT NOT NULL DEFAULT 0,
+    Subtotal DECIMAL(10, 2) NOT NULL DEFAULT 0,
     CreatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    UpdatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UpdatedAt TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
     FOREIGN KEY (CustomerID) REFERENCES Customer (CustomerID) ON DELETE CASCADE
 );
 
@@ -76,7 +83,7 @@ CREATE TABLE CustomerOrder (
         'credit_card'
     ) NOT NULL,
     CreatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    UpdatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UpdatedAt TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
     FOREIGN KEY (CustomerID) REFERENCES Customer (CustomerID) ON DELETE SET NULL
 );
 
@@ -88,7 +95,7 @@ CREATE TABLE OrderItems (
     Quantity INT NOT NULL CHECK (Quantity > 0),
     PriceAtPurchase DECIMAL(7, 2) NOT NULL CHECK (PriceAtPurchase >= 0),
     CreatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    UpdatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UpdatedAt TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
     FOREIGN KEY (OrderID) REFERENCES CustomerOrder (OrderID) ON DELETE CASCADE,
     FOREIGN KEY (BookID) REFERENCES Book (BookID) ON DELETE SET NULL
 );
@@ -102,6 +109,9 @@ CREATE INDEX idx_book_author ON Book (Author);
 CREATE INDEX idx_book_genre ON Book (Genre);
 CREATE INDEX idx_book_status ON Book (BookStatus);
 CREATE INDEX idx_book_stock_status ON Book (Stock, BookStatus);
+-- Keyset pagination ranges (InnoDB appends BookID to every secondary index)
+CREATE INDEX idx_book_price ON Book (Price);
+CREATE INDEX idx_book_created ON Book (CreatedAt);
 
 -- Customer table indexes
 CREATE INDEX idx_customer_name ON Customer (CustomerName);
@@ -116,54 +126,19 @@ CREATE INDEX idx_order_status ON CustomerOrder (OrderStatus);
 CREATE INDEX idx_order_date ON CustomerOrder (CreatedAt);
 
 -- CartItems and OrderItems table indexes
-CREATE INDEX idx_cart_items ON CartItems (CartID, BookID);
+-- One line per book and cart; add-to-cart upserts against it
+CREATE UNIQUE INDEX idx_cart_items ON CartItems (CartID, BookID);
 CREATE INDEX idx_order_items ON OrderItems (OrderID, BookID);
 
 -- ====================================================
 -- TRIGGERS, PROCEDURES
 -- ====================================================
 
-DELIMITER $$
--- Update book stock when order is placed
-CREATE TRIGGER after_order_placed
-AFTER INSERT ON OrderItems
-FOR EACH ROW
-BEGIN
-    DECLARE stock_available INT;
-    SELECT Stock INTO stock_available FROM Book WHERE BookID = NEW.BookID;
-    IF stock_available < NEW.Quantity THEN
-        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Insufficient stock for book';
-    ELSE
-        UPDATE Book
-        SET Stock = Stock - NEW.Quantity
-        WHERE BookID = NEW.BookID;
-        UPDATE Book
-        SET BookStatus = 'out_of_stock'
-        WHERE Stock = 0 AND BookStatus = 'available';
-    END IF;
-END $$
-DELIMITER ;
-
-DELIMITER $$
--- Restore book stock if an order is canceled
-CREATE TRIGGER after_order_canceled
-AFTER UPDATE ON CustomerOrder
-FOR EACH ROW
-BEGIN
-    IF NEW.OrderStatus = 'canceled' AND OLD.OrderStatus != 'canceled' THEN
-        -- Restore stock for all items in the canceled order
-        UPDATE Book b
-        JOIN OrderItems oi ON b.BookID = oi.BookID
-        SET b.Stock = b.Stock + oi.Quantity
-        WHERE oi.OrderID = NEW.OrderID;
-        
-        -- Update book status if stock becomes available
-        UPDATE Book
-        SET BookStatus = 'available'
-        WHERE Stock > 0 AND BookStatus = 'out_of_stock';
-    END IF;
-END $$
-DELIMITER ;
+-- Stock is adjusted by the application with atomic conditional updates
+-- (BookRepository.decrementStock/incrementStock). The former after_order_placed and
+-- after_order_canceled triggers did the same work a second time, so they are dropped.
+DROP TRIGGER IF EXISTS after_order_placed;
+DROP TRIGGER IF EXISTS after_order_canceled;
 
 DELIMITER $$
 -- Place order
@@ -213,8 +188,16 @@ BEGIN
         JOIN Book b ON ci.BookID = b.BookID
         WHERE ci.CartID = v_CartID;
         
+        -- Take the stock (previously done by the after_order_placed trigger)
+        UPDATE Book b
+        JOIN CartItems ci ON b.BookID = ci.BookID
+        SET b.BookStatus = CASE WHEN b.Stock = ci.Quantity THEN 'out_of_stock' ELSE b.BookStatus END,
+            b.Stock = b.Stock - ci.Quantity
+        WHERE ci.CartID = v_CartID;
+        
         -- Clear the cart
         DELETE FROM CartItems WHERE CartID = v_CartID;
+        UPDATE Cart SET ItemCount = 0, Subtotal = 0 WHERE CartID = v_CartID;
         
         SET p_Success = TRUE;
     ELSE
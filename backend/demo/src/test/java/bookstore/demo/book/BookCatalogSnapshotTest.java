@@ -0,0 +1,109 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BookCatalogSnapshotTest {
+
+    private static final String[] GENRES = {"Fantasy", "fantasy", "Horror", "Science Fiction", null};
+
+    @Test
+    void ofIndexesByIdStatusAndGenre() {
+        BookCatalog.Snapshot snapshot = BookCatalog.Snapshot.of(1, List.of(
+                book(3, Book.BookStatus.available, "horror"),
+                book(1, Book.BookStatus.out_of_stock, "Fantasy"),
+                book(2, Book.BookStatus.available, "fantasy")));
+
+        assertThat(snapshot.books()).extracting(Book::getBookId).containsExactly(1, 2, 3);
+        assertThat(snapshot.findById(2)).map(Book::getGenre).contains("fantasy");
+        assertThat(snapshot.findById(4)).isEmpty();
+        assertThat(snapshot.findByStatus(Book.BookStatus.available)).extracting(Book::getBookId).containsExactly(2, 3);
+        assertThat(snapshot.findByGenre("FANTASY")).extracting(Book::getBookId).containsExactly(1, 2);
+        // Spelled as on the lowest-id book, case-insensitively ordered
+        assertThat(snapshot.genres()).containsExactly("Fantasy", "horror");
+    }
+
+    @Test
+    void applyInsertsUpdatesAndDeletes() {
+        Book first = book(1, Book.BookStatus.available, "Fantasy");
+        Book second = book(2, Book.BookStatus.available, "Horror");
+        BookCatalog.Snapshot snapshot = BookCatalog.Snapshot.of(1, List.of(first, second));
+
+        Book soldOut = book(2, Book.BookStatus.out_of_stock, "Horror");
+        Book added = book(5, Book.BookStatus.available, "Poetry");
+        BookCatalog.Snapshot next = snapshot.apply(2, List.of(
+                new BookCatalog.Change(second, soldOut),
+                new BookCatalog.Change(null, added),
+                new BookCatalog.Change(first, null)));
+
+        assertThat(next.version()).isEqualTo(2);
+        assertThat(next.books()).containsExactly(soldOut, added);
+        assertThat(next.byId()).containsOnlyKeys(2, 5);
+        assertThat(next.findByStatus(Book.BookStatus.available)).containsExactly(added);
+        assertThat(next.findByStatus(Book.BookStatus.out_of_stock)).containsExactly(soldOut);
+        assertThat(next.findByGenre("fantasy")).isEmpty();
+        assertThat(next.genres()).containsExactly("Horror", "Poetry");
+
+        // The previous snapshot is untouched
+        assertThat(snapshot.books()).containsExactly(first, second);
+        assertThat(snapshot.findByStatus(Book.BookStatus.out_of_stock)).isEmpty();
+    }
+
+    @Test
+    void incrementalAndFullBuildsAgree() {
+        Random random = new Random(42);
+        Map<Integer, Book> current = new HashMap<>();
+        for (int id = 1; id <= 200; id++) {
+            current.put(id, randomBook(random, id));
+        }
+        BookCatalog.Snapshot snapshot = BookCatalog.Snapshot.of(1, current.values());
+
+        for (int round = 0; round < 300; round++) {
+            // Mostly small batches (incremental path), sometimes large ones (full rebuild)
+            int size = random.nextInt(10) == 0 ? 40 : 1 + random.nextInt(3);
+            List<BookCatalog.Change> changes = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                int id = 1 + random.nextInt(250);
+                Book previous = current.get(id);
+                Book next = random.nextInt(5) == 0 ? null : randomBook(random, id);
+                if (previous == null && next == null) {
+                    continue;
+                }
+                changes.add(new BookCatalog.Change(previous, next));
+                if (next == null) {
+                    current.remove(id);
+                } else {
+                    current.put(id, next);
+                }
+            }
+
+            snapshot = snapshot.apply(snapshot.version() + 1, changes);
+            BookCatalog.Snapshot expected = BookCatalog.Snapshot.of(snapshot.version(), current.values());
+
+            assertThat(snapshot.books()).isEqualTo(expected.books());
+            assertThat(snapshot.byId()).isEqualTo(expected.byId());
+            assertThat(snapshot.byStatus()).isEqualTo(expected.byStatus());
+            assertThat(snapshot.byGenre()).isEqualTo(expected.byGenre());
+            assertThat(snapshot.genres()).isEqualTo(expected.genres());
+        }
+    }
+
+    private static Book randomBook(Random random, int id) {
+        Book.BookStatus[] statuses = Book.BookStatus.values();
+        return book(id, statuses[random.nextInt(statuses.length)], GENRES[random.nextInt(GENRES.length)]);
+    }
+
+    private static Book book(int id, Book.BookStatus status, String genre) {
+        Book book = new Book("Book " + id, BigDecimal.TEN, null, status, null, genre, "Author", 1);
+        book.setBookId(id);
+        return book;
+    }
+}
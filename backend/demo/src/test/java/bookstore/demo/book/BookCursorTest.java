@@ -0,0 +1,92 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+class BookCursorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void roundTripsKeysWithTheirTypes() {
+        KeysetScrollPosition position = ScrollPosition.forward(Map.of("price", new BigDecimal("12.50"), "bookId", 7));
+        String token = BookCursor.of("price", "DESC", position).encode(objectMapper);
+
+        BookCursor cursor = BookCursor.decode(token, objectMapper);
+
+        assertThat(cursor.sortField()).isEqualTo("price");
+        assertThat(cursor.direction()).isEqualTo("desc");
+        assertThat(cursor.keys()).containsOnlyKeys("price", "bookId").containsEntry("bookId", 7);
+        assertThat((BigDecimal) cursor.keys().get("price")).isEqualByComparingTo("12.50");
+        assertThat(cursor.matches("price", "desc")).isTrue();
+        assertThat(cursor.matches("price", "asc")).isFalse();
+        assertThat(cursor.matches("title", "desc")).isFalse();
+    }
+
+    @Test
+    void roundTripsTimestamps() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456000);
+        KeysetScrollPosition position = ScrollPosition.forward(Map.of("createdAt", createdAt, "bookId", 3));
+
+        BookCursor cursor = BookCursor.decode(BookCursor.of("createdAt", "asc", position).encode(objectMapper),
+                objectMapper);
+
+        assertThat(cursor.keys()).containsEntry("createdAt", createdAt);
+    }
+
+    @Test
+    void bookIdSortNeedsOnlyOneKey() {
+        KeysetScrollPosition position = ScrollPosition.forward(Map.of("bookId", 42));
+
+        BookCursor cursor = BookCursor.decode(BookCursor.of("bookId", "asc", position).encode(objectMapper),
+                objectMapper);
+
+        assertThat(cursor.keys()).containsExactly(Map.entry("bookId", 42));
+    }
+
+    @Test
+    void firstPageHasNoKeys() {
+        BookCursor cursor = BookCursor.first("title", "sideways");
+
+        assertThat(cursor.direction()).isEqualTo("asc");
+        assertThat(cursor.position()).isEqualTo(ScrollPosition.keyset());
+    }
+
+    @Test
+    void rejectsUnsupportedSortFields() {
+        assertThatThrownBy(() -> BookCursor.first("bookDescription", "asc"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        assertThatThrownBy(() -> BookCursor.decode("not base64 json", objectMapper))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        // Key for another column than the sort field
+        assertThatThrownBy(() -> BookCursor.decode(token("{\"s\":\"title\",\"d\":\"asc\",\"k\":{\"stock\":1,\"bookId\":1}}"),
+                objectMapper))
+                .hasMessage("Invalid cursor");
+        // Missing the BookID tie-breaker
+        assertThatThrownBy(() -> BookCursor.decode(token("{\"s\":\"title\",\"d\":\"asc\",\"k\":{\"title\":\"a\"}}"),
+                objectMapper))
+                .hasMessage("Invalid cursor");
+    }
+
+    private static String token(String json) {
+        return Base64.getUrlEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
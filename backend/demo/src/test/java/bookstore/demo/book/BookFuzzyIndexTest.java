@@ -0,0 +1,85 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BookFuzzyIndexTest {
+
+    private final BookCatalog bookCatalog = mock(BookCatalog.class);
+
+    @Test
+    void findsMisspelledAuthors() {
+        BookFuzzyIndex index = index(200, 5000, List.of(
+                book(1, "The Hobbit", "J. R. R. Tolkien", Book.BookStatus.available, "Fantasy"),
+                book(2, "Emma", "Jane Austen", Book.BookStatus.available, "Classic")));
+
+        assertThat(index.search("Tolkein", true, null, null)).extracting(Book::getBookId).containsExactly(1);
+        assertThat(index.search("xyz", false, null, null)).isEmpty();
+    }
+
+    @Test
+    void filtersApplyBeforeTheCandidateCap() {
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= 5; id++) {
+            books.add(book(id, "Dune", "Frank Herbert", Book.BookStatus.out_of_stock, "Science Fiction"));
+        }
+        books.add(book(6, "Dune Messiah", "Frank Herbert", Book.BookStatus.available, "Science Fiction"));
+        BookFuzzyIndex index = index(1, 5000, books);
+
+        // Books 1-5 match better, but only one candidate is scored and they are filtered out first
+        assertThat(index.search("Dune", false, Book.BookStatus.available, null))
+                .extracting(Book::getBookId).containsExactly(6);
+        assertThat(index.search("Dune", false, null, "science fiction")).hasSize(1);
+    }
+
+    @Test
+    void commonTrigramsDoNotCrowdOutTheBestMatch() {
+        List<Book> books = new ArrayList<>();
+        // Share "  h", " ho" and "hob" with the query, enough to pass the threshold
+        for (int id = 1; id <= 300; id++) {
+            books.add(book(id, "Hobnail", "Smith", Book.BookStatus.available, "Craft"));
+        }
+        books.add(book(301, "The Hobbit", "Tolkien", Book.BookStatus.available, "Fantasy"));
+        BookFuzzyIndex index = index(200, 50, books);
+
+        // Only 50 postings are visited, yet the rare grams lead straight to the exact match
+        assertThat(index.search("hobbit", false, null, null)).first()
+                .extracting(Book::getBookId).isEqualTo(301);
+    }
+
+    @Test
+    void changesAreIndexedAndRemoved() {
+        Book hobbit = book(1, "The Hobbit", "Tolkien", Book.BookStatus.available, "Fantasy");
+        BookFuzzyIndex index = index(200, 5000, List.of(hobbit));
+        Book renamed = book(1, "Silmarillion", "Tolkien", Book.BookStatus.available, "Fantasy");
+        when(bookCatalog.snapshot()).thenReturn(BookCatalog.Snapshot.of(2, List.of(renamed)));
+
+        index.onChange(hobbit, renamed);
+        assertThat(index.search("hobit", false, null, null)).isEmpty();
+        assertThat(index.search("silmarilion", false, null, null)).containsExactly(renamed);
+
+        index.onChange(renamed, null);
+        assertThat(index.search("silmarilion", false, null, null)).isEmpty();
+    }
+
+    private BookFuzzyIndex index(int maxCandidates, int maxPostings, List<Book> books) {
+        BookCatalog.Snapshot snapshot = BookCatalog.Snapshot.of(1, books);
+        when(bookCatalog.snapshot()).thenReturn(snapshot);
+        BookFuzzyIndex index = new BookFuzzyIndex(bookCatalog, 0.4, maxCandidates, maxPostings);
+        index.onReload(snapshot);
+        return index;
+    }
+
+    private static Book book(int id, String title, String author, Book.BookStatus status, String genre) {
+        Book book = new Book(title, BigDecimal.TEN, null, status, null, genre, author, 1);
+        book.setBookId(id);
+        return book;
+    }
+}
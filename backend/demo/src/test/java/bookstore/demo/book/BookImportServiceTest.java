@@ -0,0 +1,75 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class BookImportServiceTest {
+
+    private final BookCatalog bookCatalog = mock(BookCatalog.class);
+
+    private final BookImportService service = new BookImportService(mock(JdbcTemplate.class),
+            mock(NamedParameterJdbcTemplate.class), mock(TransactionTemplate.class), bookCatalog);
+
+    @Test
+    void readsPlainAndQuotedFields() throws IOException {
+        BufferedReader reader = reader("a,\"b,c\",\"say \"\"hi\"\"\",\n\n\"two\nlines\",x\n");
+
+        assertThat(BookImportService.readCsvRecord(reader)).containsExactly("a", "b,c", "say \"hi\"", "");
+        // Blank lines between records are skipped, quoted fields keep their line breaks
+        assertThat(BookImportService.readCsvRecord(reader)).containsExactly("two\nlines", "x");
+        assertThat(BookImportService.readCsvRecord(reader)).isNull();
+    }
+
+    @Test
+    void rejectsUnterminatedQuote() throws IOException {
+        BufferedReader reader = reader("\"open,field\nstill open\n");
+
+        assertThatThrownBy(() -> BookImportService.readCsvRecord(reader))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unterminated");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unterminatedQuoteIsReportedAgainstItsRow() throws IOException {
+        Map<String, Object> report = service.importCsv(new StringReader(
+                "title,author,genre,price,stock\n"
+                        + "Dune,Frank Herbert,Science Fiction,9.99,3\n"
+                        + "Emma,Jane Austen,Classic,abc,1\n"
+                        + "\"Broken,Someone,Horror,1,1\n"
+                        + "Never,Read,Horror,1,1\n"));
+
+        assertThat(report).containsEntry("rows", 3).containsEntry("inserted", 1).containsEntry("failed", 2);
+        List<Map<String, Object>> errors = (List<Map<String, Object>>) report.get("errors");
+        assertThat(errors).extracting(error -> error.get("row")).containsExactly(2, 3);
+        assertThat((String) errors.get(1).get("error")).contains("Unterminated");
+        // The report is still finished, so the catalog picks up the rows already imported
+        verify(bookCatalog).reload();
+    }
+
+    @Test
+    void headerProblemsAreRejectedUpFront() {
+        assertThatThrownBy(() -> service.importCsv(new StringReader("title,author\nDune,Frank Herbert\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("CSV header is missing column: genre");
+        verify(bookCatalog, never()).reload();
+    }
+
+    private static BufferedReader reader(String csv) {
+        return new BufferedReader(new StringReader(csv));
+    }
+}
@@ -0,0 +1,90 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class BookSuggestIndexTest {
+
+    private final BookCatalog bookCatalog = mock(BookCatalog.class);
+    private final BookRepository bookRepository = mock(BookRepository.class);
+
+    @Test
+    void findsTitlesByPrefixAndByLaterWords() {
+        BookSuggestIndex index = index(
+                book(1, "The Lord of the Rings", "J. R. R. Tolkien"),
+                book(2, "Emma", "Jane Austen"));
+
+        assertThat(index.suggest("the lo", 10)).extracting(BookSuggestIndex.Suggestion::bookId).containsExactly(1);
+        assertThat(index.suggest("rings", 10)).extracting(BookSuggestIndex.Suggestion::bookId).containsExactly(1);
+        assertThat(index.suggest("jane", 10))
+                .extracting(BookSuggestIndex.Suggestion::type, BookSuggestIndex.Suggestion::text)
+                .containsExactly(tuple("author", "Jane Austen"));
+        assertThat(index.suggest("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    void rebuildsWithoutQueryingTheDatabase() {
+        index(book(1, "Dune", "Frank Herbert"));
+
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void ranksByUnitsSoldAndFollowsSales() {
+        when(bookRepository.sumQuantitySoldByBook()).thenReturn(List.<Object[]>of(new Object[] { 2, 5L }));
+        BookSuggestIndex index = index(
+                book(1, "Dune", "Frank Herbert"),
+                book(2, "Dune Messiah", "Frank Herbert"));
+
+        index.loadPopularity();
+        assertThat(index.suggest("dune", 10)).extracting(BookSuggestIndex.Suggestion::bookId).containsExactly(2, 1);
+
+        index.onSales(new BookSalesEvent(1, LocalDateTime.now(), Map.of(1, 9)));
+        assertThat(index.suggest("dune", 10))
+                .extracting(BookSuggestIndex.Suggestion::bookId, BookSuggestIndex.Suggestion::score)
+                .containsExactly(tuple(1, 9L), tuple(2, 5L));
+        assertThat(index.suggest("frank", 1))
+                .extracting(BookSuggestIndex.Suggestion::score).containsExactly(14L);
+    }
+
+    @Test
+    void renamedAndDeletedBooksLeaveTheTrie() {
+        Book hobbit = book(1, "The Hobbit", "J. R. R. Tolkien");
+        BookSuggestIndex index = index(hobbit, book(2, "Emma", "Jane Austen"));
+
+        Book renamed = book(1, "Silmarillion", "J. R. R. Tolkien");
+        index.onChange(hobbit, renamed);
+        assertThat(index.suggest("hob", 10)).isEmpty();
+        assertThat(index.suggest("silm", 10)).extracting(BookSuggestIndex.Suggestion::bookId).containsExactly(1);
+
+        index.onChange(renamed, null);
+        assertThat(index.suggest("silm", 10)).isEmpty();
+        // The author goes with their last book
+        assertThat(index.suggest("j r r", 10)).isEmpty();
+        assertThat(index.suggest("emma", 10)).hasSize(1);
+    }
+
+    private BookSuggestIndex index(Book... books) {
+        BookCatalog.Snapshot snapshot = BookCatalog.Snapshot.of(1, List.of(books));
+        when(bookCatalog.snapshot()).thenReturn(snapshot);
+        BookSuggestIndex index = new BookSuggestIndex(bookCatalog, bookRepository);
+        index.onReload(snapshot);
+        return index;
+    }
+
+    private static Book book(int id, String title, String author) {
+        Book book = new Book(title, BigDecimal.TEN, null, Book.BookStatus.available, null, "Fiction", author, 1);
+        book.setBookId(id);
+        return book;
+    }
+}
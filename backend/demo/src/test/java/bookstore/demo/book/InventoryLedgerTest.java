@@ -0,0 +1,183 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class InventoryLedgerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final InventoryLedger ledger = new InventoryLedger(true, jdbcTemplate,
+            mock(NamedParameterJdbcTemplate.class), transactionTemplate, mock(ApplicationEventPublisher.class));
+
+    // Deltas written by each flush, as bookId -> delta
+    private final List<Map<Integer, Long>> flushed = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(1))).thenReturn(List.of(5));
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(2))).thenReturn(List.of());
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+                    Map<Integer, Long> deltas = new HashMap<>();
+                    invocation.<Collection<Map.Entry<Integer, Long>>>getArgument(1)
+                            .forEach(delta -> deltas.put(delta.getKey(), delta.getValue()));
+                    flushed.add(deltas);
+                    return new int[0][];
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void admitsUntilStockRunsOut() {
+        assertThat(ledger.reserve(1, 3)).isTrue();
+        assertThat(ledger.reserve(1, 3)).isFalse();
+        assertThat(ledger.reserve(1, 2)).isTrue();
+        assertThat(ledger.reserve(1, 1)).isFalse();
+
+        assertThat(ledger.getStats()).containsEntry("reservations", 2L).containsEntry("rejections", 2L);
+    }
+
+    @Test
+    void unknownBooksAreRejected() {
+        assertThat(ledger.reserve(2, 1)).isFalse();
+        ledger.release(2, 1);
+
+        assertThat(ledger.getStats()).containsEntry("accounts", 0);
+    }
+
+    @Test
+    void releaseMakesUnitsAvailableAgain() {
+        assertThat(ledger.reserve(1, 5)).isTrue();
+        ledger.release(1, 2);
+
+        assertThat(ledger.reserve(1, 2)).isTrue();
+        assertThat(ledger.reserve(1, 1)).isFalse();
+    }
+
+    @Test
+    void rolledBackReservationsAreHandedBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(ledger.reserve(1, 4)).isTrue();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // All five are available again, and nothing is left to flush
+        assertThat(ledger.reserve(1, 5)).isTrue();
+        ledger.release(1, 5);
+        ledger.flush();
+        assertThat(flushed).isEmpty();
+    }
+
+    @Test
+    void committedReservationsAreKept() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(ledger.reserve(1, 4)).isTrue();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(ledger.reserve(1, 2)).isFalse();
+    }
+
+    @Test
+    void rolledBackReleasesAreTakenAgain() {
+        assertThat(ledger.reserve(1, 5)).isTrue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.release(1, 3);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(ledger.reserve(1, 1)).isFalse();
+    }
+
+    @Test
+    void flushWritesNetDeltasAndRetriesAfterFailure() {
+        assertThat(ledger.reserve(1, 3)).isTrue();
+        ledger.release(1, 1);
+
+        doThrow(new QueryTimeoutException("timeout")).when(transactionTemplate).executeWithoutResult(any());
+        assertThatThrownBy(ledger::flush).isInstanceOf(QueryTimeoutException.class);
+        assertThat(flushed).isEmpty();
+
+        // The failed deltas were put back and go out with the next flush
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        ledger.flush();
+        assertThat(flushed).containsExactly(Map.of(1, -2L));
+        assertThat(ledger.getStats()).containsEntry("flushes", 1L);
+    }
+
+    @Test
+    void absoluteWritesDropUnflushedDeltas() {
+        assertThat(ledger.reserve(1, 3)).isTrue();
+
+        // Restocked to 10 while the reservation was still pending: it must not come off the new level
+        ledger.overwrite(1, 10);
+
+        assertThat(ledger.reserve(1, 10)).isTrue();
+        assertThat(ledger.reserve(1, 1)).isFalse();
+        ledger.flush();
+        assertThat(flushed).containsExactly(Map.of(1, -10L));
+    }
+
+    @Test
+    void rolledBackAbsoluteWritesRestoreTheDeltas() {
+        assertThat(ledger.reserve(1, 3)).isTrue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.overwrite(1, 10);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Back to 5 - 3, with the pending reservation still to be written
+        assertThat(ledger.reserve(1, 3)).isFalse();
+        assertThat(ledger.reserve(1, 2)).isTrue();
+        ledger.flush();
+        assertThat(flushed).containsExactly(Map.of(1, -5L));
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
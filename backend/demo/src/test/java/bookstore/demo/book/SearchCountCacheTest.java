@@ -0,0 +1,33 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class SearchCountCacheTest {
+
+    private final SearchCountCache cache = new SearchCountCache(10, 60_000);
+
+    @Test
+    void countsEachSearchOnce() {
+        AtomicLong calls = new AtomicLong();
+
+        assertThat(cache.getCount("dune", Book.BookStatus.available, null, () -> calls.incrementAndGet() * 10))
+                .isEqualTo(10);
+        assertThat(cache.getCount("dune", Book.BookStatus.available, null, () -> calls.incrementAndGet() * 10))
+                .isEqualTo(10);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void differentFiltersAreCountedSeparately() {
+        assertThat(cache.getCount("dune", Book.BookStatus.available, null, () -> 1)).isEqualTo(1);
+        assertThat(cache.getCount("dune", null, null, () -> 2)).isEqualTo(2);
+        // The LIKE matches the term as given, so surrounding spaces make a different search
+        assertThat(cache.getCount(" dune", Book.BookStatus.available, null, () -> 3)).isEqualTo(3);
+        assertThat(cache.getCount("dune", Book.BookStatus.available, "Fantasy", () -> 4)).isEqualTo(4);
+        assertThat(cache.getCount("dune", Book.BookStatus.out_of_stock, null, () -> 5)).isEqualTo(5);
+    }
+}
@@ -0,0 +1,61 @@
+package bookstore.demo.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SortedBookListTest {
+
+    @Test
+    void ofSortsById() {
+        SortedBookList list = SortedBookList.of(List.of(book(5), book(1), book(3)));
+
+        assertThat(list).extracting(Book::getBookId).containsExactly(1, 3, 5);
+        assertThat(list.find(3).getBookId()).isEqualTo(3);
+        assertThat(list.find(4)).isNull();
+    }
+
+    @Test
+    void withInsertsInOrderOrReplaces() {
+        SortedBookList list = SortedBookList.of(List.of(book(2), book(4)));
+
+        assertThat(list.with(book(1))).extracting(Book::getBookId).containsExactly(1, 2, 4);
+        assertThat(list.with(book(3))).extracting(Book::getBookId).containsExactly(2, 3, 4);
+        assertThat(list.with(book(9))).extracting(Book::getBookId).containsExactly(2, 4, 9);
+
+        Book replacement = book(4);
+        SortedBookList replaced = list.with(replacement);
+        assertThat(replaced).hasSize(2);
+        assertThat(replaced.find(4)).isSameAs(replacement);
+        assertThat(list.find(4)).isNotSameAs(replacement);
+    }
+
+    @Test
+    void withoutRemovesOrReturnsSameList() {
+        SortedBookList list = SortedBookList.of(List.of(book(1), book(2), book(3)));
+
+        assertThat(list.without(2)).extracting(Book::getBookId).containsExactly(1, 3);
+        assertThat(list.without(1)).extracting(Book::getBookId).containsExactly(2, 3);
+        assertThat(list.without(3)).extracting(Book::getBookId).containsExactly(1, 2);
+        assertThat(list.without(7)).isSameAs(list);
+        assertThat(SortedBookList.EMPTY.with(book(1)).without(1)).isEmpty();
+    }
+
+    @Test
+    void asMapIsAnIdView() {
+        SortedBookList list = SortedBookList.of(List.of(book(1), book(2)));
+
+        assertThat(list.asMap()).containsOnlyKeys(1, 2);
+        assertThat(list.asMap().get(2)).isSameAs(list.find(2));
+        assertThat(list.asMap().get("2")).isNull();
+        assertThat(list.asMap().containsKey(3)).isFalse();
+    }
+
+    private static Book book(int id) {
+        Book book = new Book();
+        book.setBookId(id);
+        return book;
+    }
+}
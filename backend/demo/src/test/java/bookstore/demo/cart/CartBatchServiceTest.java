@@ -0,0 +1,166 @@
+package bookstore.demo.cart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import bookstore.demo.book.Book;
+import bookstore.demo.book.BookRepository;
+
+class CartBatchServiceTest {
+
+    private static final int CART_ID = 9;
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+
+    private final CartBatchService service = new CartBatchService(cartRepository, bookRepository, jdbcTemplate,
+            namedJdbcTemplate);
+
+    // Cart lines (bookId, cartItemId, quantity) returned by each successive read of CartItems
+    private final List<int[][]> reads = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(cartRepository.existsById(CART_ID)).thenReturn(true);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (int[] line : reads.remove(0)) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt("BookID")).thenReturn(line[0]);
+                when(rs.getInt("CartItemID")).thenReturn(line[1]);
+                when(rs.getInt("Quantity")).thenReturn(line[2]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(namedJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void mixedBatchAddsUpdatesAndRejects() {
+        when(bookRepository.findAllById(any())).thenReturn(List.of(
+                book(1, "5.00", 10, Book.BookStatus.available),
+                book(2, "3.00", 10, Book.BookStatus.available),
+                book(3, "7.00", 10, Book.BookStatus.available),
+                book(4, "2.00", 10, Book.BookStatus.out_of_stock),
+                book(5, "1.00", 1, Book.BookStatus.available)));
+        reads.add(new int[][] {{2, 20, 1}});
+        // Book 3 is rejected by the stock guard at write time
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList())).thenReturn(new int[] {1, 0});
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE"), anyList())).thenReturn(new int[] {1});
+
+        Map<String, Object> response = service.addItemsToCart(CART_ID, List.of(
+                new CartItemRequest(1, 1),
+                new CartItemRequest(2, 2),
+                new CartItemRequest(3, 1),
+                new CartItemRequest(4, 1),
+                new CartItemRequest(5, 2),
+                new CartItemRequest(1, 1),
+                new CartItemRequest(6, 0)));
+
+        assertThat(response).containsEntry("added", 1).containsEntry("updated", 1).containsEntry("rejected", 4);
+        @SuppressWarnings("unchecked")
+        List<CartItemResult> items = (List<CartItemResult>) response.get("items");
+        assertThat(items).extracting(CartItemResult::bookId, CartItemResult::status, CartItemResult::error)
+                .containsExactly(
+                        tuple(6, "rejected", "Quantity must be greater than 0"),
+                        tuple(1, "added", null),
+                        tuple(2, "updated", null),
+                        tuple(3, "rejected", "Not enough stock available"),
+                        tuple(4, "rejected", "Book is not available"),
+                        tuple(5, "rejected", "Not enough stock available"));
+        assertThat(items.get(2).cartQuantity()).isEqualTo(3);
+
+        // Guarded statements, with repeated books merged and the update relative to the stored quantity
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), inserts.capture());
+        assertThat(inserts.getValue()).containsExactly(
+                new Object[] {CART_ID, 2, CART_ID, 1, 2, 2},
+                new Object[] {CART_ID, 1, CART_ID, 3, 1, 1});
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE"), updates.capture());
+        assertThat(updates.getValue()).containsExactly(new Object[] {2, 20, 2});
+
+        // Only lines actually written count: 2 x 5.00 + 2 x 3.00
+        verify(cartRepository).addToTotals(CART_ID, 4, new BigDecimal("16.00"));
+    }
+
+    @Test
+    void successNoInfoIsResolvedByReReadingTheLines() {
+        when(bookRepository.findAllById(any())).thenReturn(List.of(
+                book(1, "5.00", 10, Book.BookStatus.available),
+                book(2, "3.00", 10, Book.BookStatus.available),
+                book(3, "7.00", 10, Book.BookStatus.available)));
+        reads.add(new int[][] {{2, 20, 1}});
+        // After the batch: book 1 was inserted, book 2 raised from 1 to 3, book 3 never written
+        reads.add(new int[][] {{1, 10, 1}, {2, 20, 3}});
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenReturn(new int[] {Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE"), anyList()))
+                .thenReturn(new int[] {Statement.SUCCESS_NO_INFO});
+
+        Map<String, Object> response = service.addItemsToCart(CART_ID, List.of(
+                new CartItemRequest(1, 1),
+                new CartItemRequest(2, 2),
+                new CartItemRequest(3, 1)));
+
+        assertThat(response).containsEntry("added", 1).containsEntry("updated", 1).containsEntry("rejected", 1);
+        verify(cartRepository).addToTotals(CART_ID, 3, new BigDecimal("11.00"));
+    }
+
+    @Test
+    void nothingWrittenLeavesTotalsAlone() {
+        when(bookRepository.findAllById(any())).thenReturn(List.of(book(1, "5.00", 10, Book.BookStatus.available)));
+        reads.add(new int[0][]);
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList())).thenReturn(new int[] {0});
+
+        Map<String, Object> response = service.addItemsToCart(CART_ID, List.of(new CartItemRequest(1, 1)));
+
+        assertThat(response).containsEntry("added", 0).containsEntry("rejected", 1);
+        verify(cartRepository, never()).addToTotals(eq(CART_ID), anyInt(), any());
+    }
+
+    @Test
+    void unknownCartIsRejected() {
+        assertThatThrownBy(() -> service.addItemsToCart(CART_ID + 1, List.of(new CartItemRequest(1, 1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cart not found");
+    }
+
+    private static Book book(int id, String price, int stock, Book.BookStatus status) {
+        Book book = new Book("Book " + id, new BigDecimal(price), null, status, null, "Fantasy", "Author", stock);
+        book.setBookId(id);
+        return book;
+    }
+}
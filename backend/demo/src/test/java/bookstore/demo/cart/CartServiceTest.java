@@ -0,0 +1,39 @@
+package bookstore.demo.cart;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookstore.demo.book.BookChangeEvent;
+import bookstore.demo.book.BookDeletingEvent;
+import bookstore.demo.customer.CustomerRepository;
+
+class CartServiceTest {
+
+    private CartRepository cartRepository;
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        cartService = new CartService(cartRepository, mock(CartItemsRepository.class),
+                mock(CustomerRepository.class), mock(ActiveCartCache.class));
+    }
+
+    @Test
+    void deletingABookOnlyAdjustsTheCartsHoldingIt() {
+        cartService.onBookDeleting(new BookDeletingEvent(7));
+
+        verify(cartRepository).removeBookFromTotals(7);
+    }
+
+    @Test
+    void committedDeletesLeaveCartTotalsAlone() {
+        cartService.onBookChange(BookChangeEvent.deleted(7));
+
+        verifyNoInteractions(cartRepository);
+    }
+}
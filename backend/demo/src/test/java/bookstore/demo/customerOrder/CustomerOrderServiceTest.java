@@ -0,0 +1,214 @@
+package bookstore.demo.customerOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import bookstore.demo.book.Book;
+import bookstore.demo.book.BookRepository;
+import bookstore.demo.book.BookSalesEvent;
+import bookstore.demo.book.BookService;
+import bookstore.demo.cart.ActiveCartCache;
+import bookstore.demo.cart.Cart;
+import bookstore.demo.cart.CartItemsRepository;
+import bookstore.demo.cart.CartLine;
+import bookstore.demo.cart.CartRepository;
+import bookstore.demo.customer.Customer;
+import bookstore.demo.customer.CustomerRepository;
+
+class CustomerOrderServiceTest {
+
+    private static final int CART_ID = 7;
+    private static final int CUSTOMER_ID = 3;
+
+    private final CustomerOrderRepository orderRepository = mock(CustomerOrderRepository.class);
+    private final OrderItemsRepository orderItemsRepository = mock(OrderItemsRepository.class);
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final CartItemsRepository cartItemsRepository = mock(CartItemsRepository.class);
+    private final BookService bookService = mock(BookService.class);
+    private final ActiveCartCache activeCartCache = mock(ActiveCartCache.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final CustomerOrderService service = new CustomerOrderService(orderRepository,
+            orderItemsRepository, mock(CustomerRepository.class), cartRepository, cartItemsRepository,
+            mock(BookRepository.class), bookService, activeCartCache, eventPublisher, jdbcTemplate);
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = new Customer();
+        customer.setCustomerId(CUSTOMER_ID);
+        Cart cart = new Cart(customer);
+        cart.setCartId(CART_ID);
+        when(cartRepository.findById(CART_ID)).thenReturn(Optional.of(cart));
+
+        // Book 2 appears on two lines; lines are merged per book
+        when(cartItemsRepository.findLinesByCartId(CART_ID)).thenReturn(List.of(
+                line(1, 5, "9.00", 1),
+                line(2, 2, "4.50", 2),
+                line(3, 2, "4.50", 1)));
+        when(bookService.lockBooks(any())).thenReturn(List.of(book(2, "5.00"), book(5, "10.00")));
+        when(orderRepository.save(any())).thenAnswer(invocation -> {
+            CustomerOrder order = invocation.getArgument(0);
+            order.setOrderId(42);
+            return order;
+        });
+    }
+
+    @Test
+    void placesOrderPricedFromLockedRows() {
+        when(bookService.decrementStocks(Map.of(2, 3, 5, 1))).thenReturn(true);
+
+        CustomerOrder order = service.createOrderFromCart(CART_ID, CUSTOMER_ID, "Home",
+                CustomerOrder.PaymentMethod.cash_on_delivery);
+
+        // Locked prices win over the ones shown in the cart
+        assertThat(order.getTotal()).isEqualByComparingTo("25.00");
+        assertThat(order.getOrderStatus()).isEqualTo(CustomerOrder.OrderStatus.pending);
+        verify(bookService).lockBooks(Set.of(2, 5));
+
+        // One batch for all order items, in BookID order
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> items = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), items.capture());
+        assertThat(items.getValue()).containsExactly(
+                new Object[] {42, 2, 3, new BigDecimal("5.00")},
+                new Object[] {42, 5, 1, new BigDecimal("10.00")});
+    }
+
+    @Test
+    void resetsCartAndEvictsCachedCartId() {
+        when(bookService.decrementStocks(any())).thenReturn(true);
+
+        service.createOrderFromCart(CART_ID, CUSTOMER_ID, "Home", CustomerOrder.PaymentMethod.cash_on_delivery);
+
+        verify(cartItemsRepository).deleteByCartCartId(CART_ID);
+        verify(cartRepository).resetTotals(CART_ID);
+        verify(activeCartCache).evict(CUSTOMER_ID);
+        ArgumentCaptor<BookSalesEvent> event = ArgumentCaptor.forClass(BookSalesEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().quantities()).isEqualTo(Map.of(2, 3, 5, 1));
+    }
+
+    @Test
+    void shortStockWritesNothing() {
+        when(bookService.decrementStocks(any())).thenReturn(false);
+
+        assertThatThrownBy(() -> service.createOrderFromCart(CART_ID, CUSTOMER_ID, "Home",
+                CustomerOrder.PaymentMethod.cash_on_delivery))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Not enough stock available");
+
+        verify(orderRepository, never()).save(any());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(cartItemsRepository, never()).deleteByCartCartId(any());
+        verify(cartRepository, never()).resetTotals(any());
+        verify(activeCartCache, never()).evict(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void missingBookRejectsBeforeTakingStock() {
+        when(bookService.lockBooks(any())).thenReturn(List.of(book(5, "10.00")));
+
+        assertThatThrownBy(() -> service.createOrderFromCart(CART_ID, CUSTOMER_ID, "Home",
+                CustomerOrder.PaymentMethod.cash_on_delivery))
+                .hasMessage("Book not found");
+
+        verify(bookService, never()).decrementStocks(any());
+    }
+
+    @Test
+    void rejectsSomeoneElsesCart() {
+        assertThatThrownBy(() -> service.createOrderFromCart(CART_ID, CUSTOMER_ID + 1, "Home",
+                CustomerOrder.PaymentMethod.cash_on_delivery))
+                .hasMessage("Cart does not belong to the specified customer");
+
+        verify(bookService, never()).lockBooks(any());
+    }
+
+    @Test
+    void statusChangeToCanceledReturnsStockFromAnyOpenStatus() {
+        CustomerOrder order = placedOrder(CustomerOrder.OrderStatus.in_transit);
+
+        CustomerOrder canceled = service.updateOrderStatus(42, CustomerOrder.OrderStatus.canceled);
+
+        assertThat(canceled.getOrderStatus()).isEqualTo(CustomerOrder.OrderStatus.canceled);
+        verify(bookService).incrementStock(2, 3);
+        verify(bookService).incrementStock(5, 1);
+        ArgumentCaptor<BookSalesEvent> event = ArgumentCaptor.forClass(BookSalesEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().quantities()).isEqualTo(Map.of(2, -3, 5, -1));
+        verify(orderRepository).save(order);
+    }
+
+    @Test
+    void otherStatusChangesLeaveStockAlone() {
+        placedOrder(CustomerOrder.OrderStatus.pending);
+
+        service.updateOrderStatus(42, CustomerOrder.OrderStatus.in_transit);
+
+        verify(bookService, never()).incrementStock(any(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void canceledOrdersCannotBeCanceledAgain() {
+        placedOrder(CustomerOrder.OrderStatus.canceled);
+
+        assertThatThrownBy(() -> service.updateOrderStatus(42, CustomerOrder.OrderStatus.canceled))
+                .hasMessage("Cannot change status of canceled order");
+        verify(bookService, never()).incrementStock(any(), anyInt());
+    }
+
+    @Test
+    void cancelEndpointStillOnlyAcceptsPendingOrders() {
+        placedOrder(CustomerOrder.OrderStatus.in_transit);
+
+        assertThatThrownBy(() -> service.cancelOrder(42))
+                .hasMessage("Only pending orders can be canceled");
+        verify(bookService, never()).incrementStock(any(), anyInt());
+    }
+
+    private CustomerOrder placedOrder(CustomerOrder.OrderStatus status) {
+        CustomerOrder order = new CustomerOrder(new Customer(), "Home", status, new BigDecimal("25.00"),
+                CustomerOrder.PaymentMethod.cash_on_delivery);
+        order.setOrderId(42);
+        when(orderRepository.findById(42)).thenReturn(Optional.of(order));
+        when(orderItemsRepository.findByOrderOrderId(42)).thenReturn(List.of(
+                new OrderItems(order, book(2, "5.00"), 3, new BigDecimal("5.00")),
+                new OrderItems(order, book(5, "10.00"), 1, new BigDecimal("10.00"))));
+        return order;
+    }
+
+    private static CartLine line(int cartItemId, int bookId, String price, int quantity) {
+        return new CartLine(cartItemId, bookId, "Book " + bookId, "Author", new BigDecimal(price), null,
+                Book.BookStatus.available, quantity);
+    }
+
+    private static Book book(int id, String price) {
+        Book book = new Book("Book " + id, new BigDecimal(price), null, Book.BookStatus.available, null,
+                "Fantasy", "Author", 10);
+        book.setBookId(id);
+        return book;
+    }
+}
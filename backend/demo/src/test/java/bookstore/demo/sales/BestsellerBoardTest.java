@@ -0,0 +1,127 @@
+package bookstore.demo.sales;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import bookstore.demo.book.Book;
+import bookstore.demo.book.BookCatalog;
+import bookstore.demo.book.BookSalesEvent;
+
+class BestsellerBoardTest {
+
+    private final BookCatalog bookCatalog = mock(BookCatalog.class);
+
+    private final BestsellerBoard board = new BestsellerBoard(mock(JdbcTemplate.class), bookCatalog, false);
+
+    private final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        Map<Integer, Book> byId = new HashMap<>();
+        for (int id = 1; id <= 3; id++) {
+            Book book = new Book("Book " + id, BigDecimal.TEN, null, Book.BookStatus.available, null,
+                    id == 3 ? "Horror" : "Fantasy", "Author", 10);
+            book.setBookId(id);
+            byId.put(id, book);
+        }
+        when(bookCatalog.snapshot()).thenReturn(new BookCatalog.Snapshot(1, LocalDateTime.now(),
+                List.copyOf(byId.values()), byId, Map.of(), Map.of(), List.of()));
+    }
+
+    @Test
+    void ranksPerWindowAndGenre() {
+        board.onSales(sale(today, Map.of(1, 2, 3, 5)));
+        board.onSales(sale(today.minusDays(3), Map.of(1, 4)));
+        board.onSales(sale(today.minusDays(20), Map.of(2, 10)));
+
+        assertThat(board.getBestsellers(BestsellerBoard.Window.day, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(3, 5), new BestsellerBoard.Entry(1, 2));
+        assertThat(board.getBestsellers(BestsellerBoard.Window.week, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(1, 6), new BestsellerBoard.Entry(3, 5));
+        assertThat(board.getBestsellers(BestsellerBoard.Window.month, "fantasy", 1))
+                .containsExactly(new BestsellerBoard.Entry(2, 10));
+    }
+
+    @Test
+    void advanceDropsDaysThatLeaveEachWindow() {
+        board.onSales(sale(today, Map.of(1, 2)));
+        board.onSales(sale(today.minusDays(6), Map.of(2, 3)));
+        board.onSales(sale(today.minusDays(29), Map.of(3, 4)));
+        // Rank once so the rollover has cached boards to invalidate
+        assertThat(board.getBestsellers(BestsellerBoard.Window.month, null, 10)).hasSize(3);
+
+        board.advance(today.plusDays(1));
+
+        assertThat(board.getBestsellers(BestsellerBoard.Window.day, null, 10)).isEmpty();
+        assertThat(board.getBestsellers(BestsellerBoard.Window.week, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(1, 2));
+        assertThat(board.getBestsellers(BestsellerBoard.Window.month, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(2, 3), new BestsellerBoard.Entry(1, 2));
+        assertThat(board.getStats()).containsEntry("days", 2);
+
+        // Skipping several days at once drops everything in between
+        board.advance(today.plusDays(40));
+        for (BestsellerBoard.Window window : BestsellerBoard.Window.values()) {
+            assertThat(board.getBestsellers(window, null, 10)).isEmpty();
+        }
+        assertThat(board.getStats()).containsEntry("days", 0);
+    }
+
+    @Test
+    void advanceIgnoresEarlierDates() {
+        board.onSales(sale(today, Map.of(1, 2)));
+
+        board.advance(today.minusDays(1));
+
+        assertThat(board.getBestsellers(BestsellerBoard.Window.day, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(1, 2));
+    }
+
+    @Test
+    void canceledSalesAreNotRanked() {
+        board.onSales(sale(today, Map.of(1, 2, 2, 1)));
+        board.onSales(sale(today, Map.of(1, -2)));
+
+        assertThat(board.getBestsellers(BestsellerBoard.Window.day, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(2, 1));
+    }
+
+    @Test
+    void cancelBeyondTheDaysUnitsOnlyTakesWhatTheDayHad() {
+        board.onSales(sale(today, Map.of(1, 2)));
+        board.onSales(sale(today.minusDays(3), Map.of(1, 4)));
+        // More than today's two units, e.g. an order whose placement event was missed
+        board.onSales(sale(today, Map.of(1, -5)));
+
+        assertThat(board.getBestsellers(BestsellerBoard.Window.day, null, 10)).isEmpty();
+        assertThat(board.getBestsellers(BestsellerBoard.Window.week, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(1, 4));
+
+        // When the older day leaves the week, the totals still match the remaining days
+        board.advance(today.plusDays(4));
+        assertThat(board.getBestsellers(BestsellerBoard.Window.week, null, 10)).isEmpty();
+        assertThat(board.getBestsellers(BestsellerBoard.Window.month, null, 10))
+                .containsExactly(new BestsellerBoard.Entry(1, 4));
+    }
+
+    // Noon UTC on the given day, as the JVM-local time the order entity would carry
+    private static BookSalesEvent sale(LocalDate day, Map<Integer, Integer> quantities) {
+        LocalDateTime orderedAt = day.atTime(12, 0).atOffset(ZoneOffset.UTC)
+                .atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        return new BookSalesEvent(1, orderedAt, quantities);
+    }
+}
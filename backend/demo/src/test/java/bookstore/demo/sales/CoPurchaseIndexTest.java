@@ -0,0 +1,83 @@
+package bookstore.demo.sales;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+import bookstore.demo.book.BookSalesEvent;
+
+class CoPurchaseIndexTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+
+    private final CoPurchaseIndex index = new CoPurchaseIndex(dataSource, false);
+
+    @Test
+    void placementAlreadyScannedIsNotCountedTwice() throws SQLException {
+        // Order 3 commits before the scan reaches it, but its event arrives while the scan is running
+        scan(List.of(new int[] { 1, 10 }, new int[] { 1, 12 }, new int[] { 2, 10 }, new int[] { 2, 12 },
+                new int[] { 3, 10 }, new int[] { 3, 11 }), 1, () -> index.onSales(sale(3, 10, 11, 1)));
+
+        index.rebuild();
+
+        assertThat(index.getRelated(10, 10)).containsExactly(12, 11);
+    }
+
+    @Test
+    void cancellationsOnlyTakeBackWhatTheScanOrReplayCounted() throws SQLException {
+        scan(List.of(new int[] { 1, 10 }, new int[] { 1, 11 }, new int[] { 2, 10 }, new int[] { 2, 12 }), 1, () -> {
+            // Order 5 was already canceled when the scan read the table
+            index.onSales(sale(5, 10, 11, -1));
+            // Order 6 is placed and canceled during the rebuild
+            index.onSales(sale(6, 10, 12, 1));
+            index.onSales(sale(6, 10, 12, -1));
+            // Order 2 is canceled after the scan read it
+            index.onSales(sale(2, 10, 12, -1));
+        });
+
+        index.rebuild();
+
+        assertThat(index.getRelated(10, 10)).containsExactly(11);
+        assertThat(index.getRelated(12, 10)).isEmpty();
+        assertThat(index.getStats()).containsEntry("pairs", 1L);
+    }
+
+    // Serve the rows from the streaming query, running duringScan once the given row has been read
+    private void scan(List<int[]> rows, int afterRow, Runnable duringScan) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+
+        int[] row = { -1 };
+        when(resultSet.next()).thenAnswer(invocation -> {
+            if (row[0] == afterRow) {
+                duringScan.run();
+            }
+            return ++row[0] < rows.size();
+        });
+        when(resultSet.getInt(1)).thenAnswer(invocation -> rows.get(row[0])[0]);
+        when(resultSet.getInt(2)).thenAnswer(invocation -> rows.get(row[0])[1]);
+    }
+
+    private static BookSalesEvent sale(int orderId, int book, int other, int quantity) {
+        Map<Integer, Integer> quantities = new TreeMap<>(Map.of(book, quantity, other, quantity));
+        return new BookSalesEvent(orderId, LocalDateTime.now(), quantities);
+    }
+}
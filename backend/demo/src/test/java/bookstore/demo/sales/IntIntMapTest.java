@@ -0,0 +1,77 @@
+package bookstore.demo.sales;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IntIntMapTest {
+
+    @Test
+    void addsAndReadsCounters() {
+        IntIntMap map = new IntIntMap();
+
+        assertThat(map.addTo(7, 2)).isEqualTo(2);
+        assertThat(map.addTo(7, 3)).isEqualTo(5);
+        assertThat(map.get(7)).isEqualTo(5);
+        assertThat(map.get(8)).isZero();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void countersAtOrBelowZeroAreRemoved() {
+        IntIntMap map = new IntIntMap();
+        map.addTo(1, 2);
+
+        assertThat(map.addTo(1, -5)).isZero();
+        assertThat(map.size()).isZero();
+        // A negative delta never creates a counter
+        assertThat(map.addTo(2, -1)).isZero();
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        IntIntMap map = new IntIntMap(2);
+        for (int key = 1; key <= 1000; key++) {
+            map.addTo(key, key);
+        }
+
+        assertThat(map.size()).isEqualTo(1000);
+        for (int key = 1; key <= 1000; key++) {
+            assertThat(map.get(key)).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void removalKeepsProbeChainsIntact() {
+        // Few distinct keys in a small table: long probe chains that wrap around, removed from the middle
+        Random random = new Random(7);
+        IntIntMap map = new IntIntMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 100_000; step++) {
+            int key = 1 + random.nextInt(24);
+            int delta = random.nextInt(7) - 3;
+            int value = map.addTo(key, delta);
+
+            int next = expected.getOrDefault(key, 0) + delta;
+            if (next > 0) {
+                expected.put(key, next);
+            } else {
+                expected.remove(key);
+            }
+            assertThat(value).isEqualTo(Math.max(next, 0));
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        for (int key = 1; key <= 24; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, 0));
+        }
+    }
+}